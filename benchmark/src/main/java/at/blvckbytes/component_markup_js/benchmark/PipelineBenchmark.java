@@ -0,0 +1,107 @@
+package at.blvckbytes.component_markup_js.benchmark;
+
+import at.blvckbytes.component_markup.constructor.SlotType;
+import at.blvckbytes.component_markup.expression.interpreter.InterpretationEnvironment;
+import at.blvckbytes.component_markup.markup.ast.node.MarkupNode;
+import at.blvckbytes.component_markup.markup.ast.tag.built_in.BuiltInTagRegistry;
+import at.blvckbytes.component_markup.markup.interpreter.MarkupInterpreter;
+import at.blvckbytes.component_markup.markup.parser.MarkupParser;
+import at.blvckbytes.component_markup.markup.parser.token.HierarchicalToken;
+import at.blvckbytes.component_markup.markup.parser.token.OutputFlag;
+import at.blvckbytes.component_markup.markup.parser.token.TokenOutput;
+import at.blvckbytes.component_markup.util.InputView;
+import at.blvckbytes.component_markup_js.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every phase of the pipeline behind ComponentMarkupJs#tokenize separately, each based on the
+ * result of its preceding phase, which is computed once up-front. JSO-bound pieces are either replaced
+ * by plain stand-ins or, as with emission, bypassed by the JS-independent serialization into HTML.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+  private static final EnumSet<OutputFlag> NO_FLAGS = EnumSet.noneOf(OutputFlag.class);
+
+  @Param({ "CHAT_LINE", "DOCS_PAGE", "LOOP_HEAVY", "TRANSLATION_HEAVY" })
+  public TemplateCorpus corpus;
+
+  private final HTMLComponentConstructor componentConstructor = new HTMLComponentConstructor();
+
+  private String input;
+  private MarkupNode ast;
+  private List<HierarchicalToken> tokens;
+  private TokenSequence tokenSequence;
+  private List<HTMLNode> lines;
+
+  @Setup
+  public void setup() {
+    // Resolving via tables is what keeps the constructor from calling into JS
+    LookupTable.TRANSLATIONS.load(TemplateCorpus.TRANSLATIONS, 1);
+    LookupTable.KEYBINDS.load(Collections.singletonMap("key.jump", "key.keyboard.space"), 1);
+
+    input = corpus.template;
+
+    ParseResult parseResult = ParseResult.parse(input, false, false);
+
+    if (parseResult.ast == null || parseResult.tokens == null)
+      throw new IllegalStateException("Template " + corpus + " failed to parse at " + parseResult.errorCharIndex + ": " + parseResult.errorMessage);
+
+    ast = parseResult.ast;
+    tokens = parseResult.tokens;
+    tokenSequence = TokenSequence.of(input, tokens);
+    lines = interpret();
+  }
+
+  // Building the AST, while the token-output only collects, without ever assembling its hierarchy
+  @Benchmark
+  public MarkupNode parseAst() {
+    return MarkupParser.parse(InputView.of(input), BuiltInTagRegistry.INSTANCE, new TokenOutput(NO_FLAGS));
+  }
+
+  @Benchmark
+  public List<HierarchicalToken> parseTokens() {
+    TokenOutput tokenOutput = new TokenOutput(NO_FLAGS);
+    MarkupParser.parse(InputView.of(input), BuiltInTagRegistry.INSTANCE, tokenOutput);
+    return tokenOutput.getResult();
+  }
+
+  @Benchmark
+  public TokenSequence sequenceTokens() {
+    return TokenSequence.of(input, tokens);
+  }
+
+  @Benchmark
+  public void emitTokens(Blackhole blackhole) {
+    for (int index = 0; index < tokenSequence.size(); ++index) {
+      blackhole.consume(tokenSequence.getTypeName(index));
+      blackhole.consume(tokenSequence.getStart(index));
+      blackhole.consume(tokenSequence.getEnd(index));
+      blackhole.consume(tokenSequence.getValue(index));
+    }
+  }
+
+  @Benchmark
+  public List<HTMLNode> interpret() {
+    InterpretationEnvironment environment = new InterpretationEnvironment(new HashMap<>(), InterpretationEnvironment.DEFAULT_INTERPRETER, PlainInterpretationPlatform.INSTANCE, null);
+
+    for (var variable : corpus.makeVariables().entrySet())
+      environment = environment.withVariable(variable.getKey(), variable.getValue());
+
+    return MarkupInterpreter.interpret(ast, SlotType.CHAT, environment, componentConstructor, SilentLogger.INSTANCE);
+  }
+
+  @Benchmark
+  public String emitHtml() {
+    return HTMLComponentConstructor.toHtml(lines);
+  }
+}
@@ -0,0 +1,127 @@
+package at.blvckbytes.component_markup_js.benchmark;
+
+import at.blvckbytes.component_markup.expression.interpreter.*;
+import at.blvckbytes.component_markup.util.TriState;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.DecimalFormat;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Stand-in for the JsInterpretationPlatform, which calls into JS for all of these operations; behaves
+ * closely enough to not skew the interpreter's control-flow, but makes no attempt at matching outputs.
+ */
+public class PlainInterpretationPlatform implements InterpretationPlatform {
+
+  public static final PlainInterpretationPlatform INSTANCE = new PlainInterpretationPlatform();
+
+  private static final Pattern COMBINING_MARKS = Pattern.compile("[\\u0300-\\u036f]");
+  private static final Pattern NON_SLUG_CHARACTERS = Pattern.compile("[^\\p{L}\\d]+");
+  private static final Pattern OUTER_DASHES = Pattern.compile("(^-+)|(-+$)");
+
+  private final Map<String, Optional<Pattern>> patterns = new HashMap<>();
+
+  private PlainInterpretationPlatform() {}
+
+  private @Nullable Pattern compilePattern(String pattern) {
+    return patterns.computeIfAbsent(pattern, key -> {
+      try {
+        return Optional.of(Pattern.compile(key));
+      } catch (PatternSyntaxException e) {
+        return Optional.empty();
+      }
+    }).orElse(null);
+  }
+
+  @Override
+  public String[] split(String input, String delimiter, boolean regex) {
+    if (!regex)
+      return input.split(Pattern.quote(delimiter), -1);
+
+    Pattern pattern = compilePattern(delimiter);
+
+    if (pattern == null)
+      return null;
+
+    return pattern.split(input, -1);
+  }
+
+  @Override
+  public TriState matchesPattern(String input, String pattern) {
+    Pattern compiledPattern = compilePattern(pattern);
+
+    if (compiledPattern == null)
+      return TriState.NULL;
+
+    return compiledPattern.matcher(input).find()
+      ? TriState.TRUE
+      : TriState.FALSE;
+  }
+
+  @Override
+  public String asciify(String input) {
+    return COMBINING_MARKS.matcher(Normalizer.normalize(input, Normalizer.Form.NFD)).replaceAll("");
+  }
+
+  @Override
+  public String slugify(String input) {
+    String result = NON_SLUG_CHARACTERS.matcher(input).replaceAll("-");
+    return OUTER_DASHES.matcher(result).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public String toTitleCase(String input) {
+    StringBuilder result = new StringBuilder(input.length());
+    boolean wordStart = true;
+
+    for (int index = 0; index < input.length(); ++index) {
+      char c = input.charAt(index);
+
+      if (!Character.isLetterOrDigit(c)) {
+        wordStart = true;
+        result.append(c);
+        continue;
+      }
+
+      result.append(wordStart ? Character.toUpperCase(c) : Character.toLowerCase(c));
+      wordStart = false;
+    }
+
+    return result.toString();
+  }
+
+  @Override
+  public String formatDate(String format, @Nullable String locale, @Nullable String timeZone, long timestamp, EnumSet<FormatDateWarning> encounteredWarnings) {
+    ZoneId zone = ZoneId.systemDefault();
+
+    if (timeZone != null) {
+      try {
+        zone = ZoneId.of(timeZone);
+      } catch (Exception e) {
+        encounteredWarnings.add(FormatDateWarning.INVALID_TIMEZONE);
+      }
+    }
+
+    try {
+      return DateTimeFormatter.ofPattern(format, locale == null ? Locale.ROOT : Locale.forLanguageTag(locale))
+        .format(Instant.ofEpochMilli(timestamp).atZone(zone));
+    } catch (Exception e) {
+      return "?";
+    }
+  }
+
+  @Override
+  public String formatNumber(String format, @Nullable String roundingMode, @Nullable String locale, Number number, EnumSet<FormatNumberWarning> encounteredWarnings) {
+    try {
+      return new DecimalFormat(format).format(number.doubleValue());
+    } catch (Exception e) {
+      return "?";
+    }
+  }
+}
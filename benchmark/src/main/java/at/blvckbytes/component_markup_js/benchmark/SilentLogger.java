@@ -0,0 +1,16 @@
+package at.blvckbytes.component_markup_js.benchmark;
+
+import at.blvckbytes.component_markup.util.InputView;
+import at.blvckbytes.component_markup.util.logging.InterpreterLogger;
+import org.jetbrains.annotations.Nullable;
+
+// Interpreter-warnings are part of the corpus' expected behaviour, and printing them would only distort timings
+public class SilentLogger implements InterpreterLogger {
+
+  public static final SilentLogger INSTANCE = new SilentLogger();
+
+  private SilentLogger() {}
+
+  @Override
+  public void log(InputView view, int position, String message, @Nullable Throwable e) {}
+}
@@ -0,0 +1,85 @@
+package at.blvckbytes.component_markup_js.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Templates resembling the workloads seen in practice, from single chat-lines up to whole docs-pages.
+ * They reside in the resource-directory corpus/, which the backend-comparison of the JS-bundles reads from as well.
+ */
+public enum TemplateCorpus {
+
+  CHAT_LINE,
+  DOCS_PAGE,
+  LOOP_HEAVY,
+  TRANSLATION_HEAVY,
+  ;
+
+  // Mirrored by scripts/compare-backends.mjs
+  public static final List<String> PLAYERS;
+  public static final List<String> ENTRIES;
+
+  public static final Map<String, String> TRANSLATIONS;
+
+  static {
+    List<String> players = new ArrayList<>();
+
+    for (int index = 0; index < 50; ++index)
+      players.add("Player" + index);
+
+    PLAYERS = Collections.unmodifiableList(players);
+
+    List<String> entries = new ArrayList<>();
+
+    for (int index = 0; index < 8; ++index)
+      entries.add("entry-" + index);
+
+    ENTRIES = Collections.unmodifiableList(entries);
+
+    Properties translations = new Properties();
+
+    try (InputStream stream = openResource("translations.properties")) {
+      translations.load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    Map<String, String> translationMap = new HashMap<>();
+
+    for (String key : translations.stringPropertyNames())
+      translationMap.put(key, translations.getProperty(key));
+
+    TRANSLATIONS = Collections.unmodifiableMap(translationMap);
+  }
+
+  public final String template;
+
+  TemplateCorpus() {
+    try (InputStream stream = openResource(name().toLowerCase(Locale.ROOT) + ".txt")) {
+      this.template = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public Map<String, Object> makeVariables() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("render_count", 0);
+    variables.put("players", PLAYERS);
+    variables.put("entries", ENTRIES);
+    return variables;
+  }
+
+  private static InputStream openResource(String fileName) throws IOException {
+    InputStream stream = TemplateCorpus.class.getResourceAsStream("/corpus/" + fileName);
+
+    if (stream == null)
+      throw new IOException("Missing corpus-file " + fileName);
+
+    return stream;
+  }
+}
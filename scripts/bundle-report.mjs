@@ -0,0 +1,91 @@
+// Reports size and start-up time of every bundle which TeaVM emitted, and fails if a
+// bundle grew by more than the allowed percentage compared to a previous report.
+//
+// Usage: node scripts/bundle-report.mjs [--baseline previous-report.json] [--max-growth 5] [--runs 10]
+
+import { execFileSync } from "node:child_process";
+import { existsSync, readFileSync, readdirSync, statSync, writeFileSync } from "node:fs";
+import { join, resolve } from "node:path";
+import { pathToFileURL } from "node:url";
+import { gzipSync } from "node:zlib";
+import { stageBundle, unstageBundle } from "./stage-bundle.mjs";
+
+const bundleDirectory = resolve("target/javascript");
+const reportFile = resolve("target/bundle-report.json");
+
+const args = process.argv.slice(2);
+
+function getArgument(name, fallback) {
+  const index = args.indexOf(name);
+  return index < 0 ? fallback : args[index + 1];
+}
+
+const baselineFile = getArgument("--baseline", null);
+const maxGrowthPercent = Number(getArgument("--max-growth", "5"));
+const runs = Number(getArgument("--runs", "10"));
+
+// Read before the new report is written, as the baseline may well be the previous report at the same path
+const baseline = baselineFile ? JSON.parse(readFileSync(baselineFile, "utf8")) : null;
+
+function measureStartup(fileName) {
+  const directory = stageBundle(bundleDirectory, [fileName]);
+
+  try {
+    const bundleUrl = pathToFileURL(join(directory, fileName)).href;
+    const script = `const start = performance.now(); await import(${JSON.stringify(bundleUrl)}); console.log(performance.now() - start);`;
+    const durations = [];
+
+    // Each run within a fresh process, as modules are only ever evaluated once
+    for (let run = 0; run < runs; ++run)
+      durations.push(Number(execFileSync(process.execPath, ["--input-type=module", "-e", script]).toString().trim()));
+
+    durations.sort((a, b) => a - b);
+    return durations[Math.floor(durations.length / 2)];
+  } finally {
+    unstageBundle(directory);
+  }
+}
+
+if (!existsSync(bundleDirectory)) {
+  console.error(`No bundles found at ${bundleDirectory}; run mvn package first`);
+  process.exit(1);
+}
+
+const report = {};
+
+for (const fileName of readdirSync(bundleDirectory).filter(name => name.endsWith(".js")).sort()) {
+  const bundleFile = join(bundleDirectory, fileName);
+  const contents = readFileSync(bundleFile);
+
+  report[fileName] = {
+    bytes: statSync(bundleFile).size,
+    gzipBytes: gzipSync(contents).length,
+    startupMillis: Number(measureStartup(fileName).toFixed(2)),
+  };
+}
+
+console.table(report);
+writeFileSync(reportFile, JSON.stringify(report, null, 2));
+
+if (baseline) {
+  let exceeded = false;
+
+  for (const [fileName, entry] of Object.entries(report)) {
+    const previous = baseline[fileName];
+
+    if (!previous)
+      continue;
+
+    const growthPercent = (entry.gzipBytes - previous.gzipBytes) / previous.gzipBytes * 100;
+
+    console.log(`${fileName}: ${growthPercent >= 0 ? "+" : ""}${growthPercent.toFixed(2)}% gzipped size`);
+
+    if (growthPercent > maxGrowthPercent) {
+      console.error(`${fileName} grew by more than ${maxGrowthPercent}%`);
+      exceeded = true;
+    }
+  }
+
+  if (exceeded)
+    process.exit(1);
+}
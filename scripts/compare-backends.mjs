@@ -0,0 +1,188 @@
+// Compares the JS-bundle against the WebAssembly GC module (built via mvn package -P wasm-gc) on the
+// template-corpus of the benchmark-module, in terms of start-up time, throughput and memory.
+//
+// Usage: node scripts/compare-backends.mjs [--iterations 200] [--warmup 50]
+
+import { execFileSync } from "node:child_process";
+import { existsSync, readFileSync, readdirSync } from "node:fs";
+import { join, resolve } from "node:path";
+import { fileURLToPath, pathToFileURL } from "node:url";
+import { stageBundle, unstageBundle } from "./stage-bundle.mjs";
+
+const corpusDirectory = resolve("benchmark/src/main/resources/corpus");
+
+const backends = {
+  "js": resolve("target/javascript"),
+  "wasm-gc": resolve("target/wasm-gc"),
+};
+
+const args = process.argv.slice(2);
+
+function getArgument(name, fallback) {
+  const index = args.indexOf(name);
+  return index < 0 ? fallback : args[index + 1];
+}
+
+const iterations = Number(getArgument("--iterations", "200"));
+const warmup = Number(getArgument("--warmup", "50"));
+
+function loadCorpus() {
+  const templates = {};
+
+  for (const fileName of readdirSync(corpusDirectory).filter(name => name.endsWith(".txt")).sort())
+    templates[fileName.slice(0, -4)] = readFileSync(join(corpusDirectory, fileName), "utf8");
+
+  const translations = {};
+
+  for (const line of readFileSync(join(corpusDirectory, "translations.properties"), "utf8").split("\n")) {
+    const separatorIndex = line.indexOf("=");
+
+    if (separatorIndex > 0)
+      translations[line.slice(0, separatorIndex)] = line.slice(separatorIndex + 1);
+  }
+
+  // Mirrors TemplateCorpus#makeVariables
+  const variables = {
+    render_count: 0,
+    players: Array.from({ length: 50 }, (_, index) => `Player${index}`),
+    entries: Array.from({ length: 8 }, (_, index) => `entry-${index}`),
+  };
+
+  return { templates, translations, variables };
+}
+
+function installCallbacks() {
+  globalThis.window = globalThis;
+
+  for (const name of ["onEmitToken", "onEmitTokens", "onPatchTokens", "onEmitComponents", "onEmitComponentsHtml", "onAppendComponents"])
+    globalThis[name] = () => {};
+
+  // The Wasm-runtime fetches the module, which node only supports for remote URLs
+  const remoteFetch = globalThis.fetch;
+
+  globalThis.fetch = async (url, options) => {
+    const href = String(url);
+
+    if (!href.startsWith("file:"))
+      return remoteFetch(url, options);
+
+    return new Response(readFileSync(fileURLToPath(href)), { headers: { "Content-Type": "application/wasm" } });
+  };
+}
+
+async function loadExports(backend, directory) {
+  if (backend === "js")
+    return await import(pathToFileURL(join(directory, "classes.js")).href);
+
+  const runtimeFile = readdirSync(directory).find(name => name.endsWith("runtime.js"));
+  const moduleFile = readdirSync(directory).find(name => name.endsWith(".wasm"));
+
+  if (!runtimeFile || !moduleFile)
+    throw new Error(`Expected a .wasm-module and its runtime within ${directory}`);
+
+  const { load } = await import(pathToFileURL(join(directory, runtimeFile)).href);
+  const teavm = await load(pathToFileURL(join(directory, moduleFile)).href);
+
+  return teavm.exports;
+}
+
+function measureOpsPerSecond(operation) {
+  for (let run = 0; run < warmup; ++run)
+    operation();
+
+  const start = performance.now();
+
+  for (let run = 0; run < iterations; ++run)
+    operation();
+
+  return iterations / ((performance.now() - start) / 1000);
+}
+
+async function runBackend(backend) {
+  const { templates, translations, variables } = loadCorpus();
+
+  installCallbacks();
+
+  const directory = stageBundle(backends[backend]);
+
+  try {
+    const startupStart = performance.now();
+    const exports = await loadExports(backend, directory);
+    const startupMillis = performance.now() - startupStart;
+
+    // Neither DOM nor cached parse-results should take part in the measurements
+    exports.setHtmlStringOutput(true);
+    exports.setParseCacheCapacity(0);
+    exports.loadTranslations(JSON.stringify(translations), 1);
+    exports.loadKeybinds(JSON.stringify({ "key.jump": "key.keyboard.space" }), 1);
+
+    const result = { startupMillis, templates: {} };
+
+    for (const [name, template] of Object.entries(templates)) {
+      const handle = exports.compile(template, false).handle;
+
+      if (handle < 0)
+        throw new Error(`Template ${name} failed to compile`);
+
+      result.templates[name] = {
+        tokenizeOpsPerSecond: measureOpsPerSecond(() => exports.tokenize(template, false, false, false, 0)),
+        renderOpsPerSecond: measureOpsPerSecond(() => exports.render(handle, variables)),
+      };
+
+      exports.release(handle);
+    }
+
+    globalThis.gc();
+
+    const memory = process.memoryUsage();
+
+    result.heapUsedBytes = memory.heapUsed;
+    result.rssBytes = memory.rss;
+
+    console.log(JSON.stringify(result));
+  } finally {
+    unstageBundle(directory);
+  }
+}
+
+if (args[0] === "--backend") {
+  await runBackend(args[1]);
+}
+else {
+  const results = {};
+
+  // Each backend within its own process, such that neither start-up nor memory is shared
+  for (const [backend, directory] of Object.entries(backends)) {
+    if (!existsSync(directory)) {
+      console.warn(`Skipping ${backend}, as ${directory} does not exist`);
+      continue;
+    }
+
+    const output = execFileSync(process.execPath, ["--expose-gc", fileURLToPath(import.meta.url), "--backend", backend, ...args]);
+    results[backend] = JSON.parse(output.toString());
+  }
+
+  const overview = {};
+
+  for (const [backend, result] of Object.entries(results)) {
+    overview[backend] = {
+      startupMillis: Number(result.startupMillis.toFixed(2)),
+      heapUsedMB: Number((result.heapUsedBytes / 1024 / 1024).toFixed(2)),
+      rssMB: Number((result.rssBytes / 1024 / 1024).toFixed(2)),
+    };
+  }
+
+  console.table(overview);
+
+  const throughput = {};
+
+  for (const [backend, result] of Object.entries(results)) {
+    for (const [name, entry] of Object.entries(result.templates)) {
+      throughput[`${name} tokenize`] = { ...throughput[`${name} tokenize`], [backend]: Math.round(entry.tokenizeOpsPerSecond) };
+      throughput[`${name} render`] = { ...throughput[`${name} render`], [backend]: Math.round(entry.renderOpsPerSecond) };
+    }
+  }
+
+  console.log("Operations per second");
+  console.table(throughput);
+}
@@ -0,0 +1,28 @@
+// Copies a directory of TeaVM-output into a temporary directory, next to stand-ins of the formatter-modules,
+// which otherwise only reside in the docs-project, such that the bundles can be imported in isolation.
+
+import { copyFileSync, mkdtempSync, readdirSync, rmSync, statSync, writeFileSync } from "node:fs";
+import { tmpdir } from "node:os";
+import { join } from "node:path";
+
+function makeFormatterStandIn(className) {
+  return `export function format() { return ''; }\nexport class ${className} { static format() { return ''; } }\nexport default ${className};\n`;
+}
+
+export function stageBundle(sourceDirectory, fileNames = readdirSync(sourceDirectory)) {
+  const directory = mkdtempSync(join(tmpdir(), "component-markup-bundle-"));
+
+  for (const fileName of fileNames) {
+    if (statSync(join(sourceDirectory, fileName)).isFile())
+      copyFileSync(join(sourceDirectory, fileName), join(directory, fileName));
+  }
+
+  writeFileSync(join(directory, "approximatedDateFormatter.js"), makeFormatterStandIn("ApproximatedDateFormatter"));
+  writeFileSync(join(directory, "approximatedNumberFormatter.js"), makeFormatterStandIn("ApproximatedNumberFormatter"));
+
+  return directory;
+}
+
+export function unstageBundle(directory) {
+  rmSync(directory, { recursive: true, force: true });
+}
@@ -0,0 +1,171 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.util.color.PackedColor;
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns each distinct pair of color and shadow-color a generated class, whose rule is inserted once into
+ * a managed stylesheet, such that materialized elements carry class-names instead of inline declarations.
+ * Gradients and rainbows color every character differently, which would grow the stylesheet without bounds;
+ * single characters thus only receive a class if their pair already has one, and are otherwise styled inline; if
+ * their shadow is derived from their color, only the color is written, with the shadow derived by one shared rule.
+ */
+public class ColorClasses {
+
+  public static final ColorClasses INSTANCE = new ColorClasses();
+
+  public static final String COLOR_CLASS_PREFIX = HTMLComponentConstructor.COMPONENT_CLASS + "--color-";
+  public static final String DERIVED_SHADOW_CLASS = HTMLComponentConstructor.COMPONENT_CLASS + "--derived-shadow";
+
+  // Alpha of the shadow which is derived from a color if none has been set explicitly
+  public static final int DERIVED_SHADOW_ALPHA = 60;
+
+  // Beyond this many classes, new pairs are written inline, as every rule slows down style-matching
+  private static final int MAX_CLASS_COUNT = 4096;
+
+  public static class Resolution {
+
+    public static final Resolution NONE = new Resolution(null, null);
+
+    public final @Nullable String className;
+    public final @Nullable String style;
+
+    private Resolution(@Nullable String className, @Nullable String style) {
+      this.className = className;
+      this.style = style;
+    }
+  }
+
+  private static class ColorPair {
+
+    private final long packedColor;
+    private final long packedShadowColor;
+
+    private ColorPair(long packedColor, long packedShadowColor) {
+      this.packedColor = packedColor;
+      this.packedShadowColor = packedShadowColor;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ColorPair))
+        return false;
+
+      ColorPair pair = (ColorPair) other;
+      return packedColor == pair.packedColor && packedShadowColor == pair.packedShadowColor;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(packedColor) * 31 + Long.hashCode(packedShadowColor);
+    }
+  }
+
+  @JSBody(
+    script = "if (typeof document === 'undefined' || !document.head) return null;"
+      + "var style = document.createElement('style');"
+      + "style.setAttribute('data-component-markup', 'colors');"
+      + "document.head.appendChild(style);"
+      + "return style.sheet;"
+  )
+  private static native @Nullable JSObject createStyleSheet();
+
+  @JSBody(
+    params = { "sheet", "rule" },
+    script = "sheet.insertRule(rule, sheet.cssRules.length);"
+  )
+  private static native void insertRule(JSObject sheet, String rule);
+
+  private final Map<ColorPair, String> classNames = new HashMap<>();
+
+  private @Nullable JSObject styleSheet;
+
+  private ColorClasses() {}
+
+  /**
+   * Decides how an element of the given colors is to be styled; pairs which cannot be represented by a class,
+   * e.g. due to the lack of a document, are written inline, exactly as by {@link #makeInlineStyle}.
+   */
+  public Resolution resolve(long packedColor, long packedShadowColor, boolean singleCharacter) {
+    if (packedColor == PackedColor.NULL_SENTINEL && packedShadowColor == PackedColor.NULL_SENTINEL)
+      return Resolution.NONE;
+
+    ColorPair pair = new ColorPair(packedColor, packedShadowColor);
+    String className = classNames.get(pair);
+
+    if (className != null)
+      return new Resolution(className, null);
+
+    if (singleCharacter) {
+      if (isDerivedShadow(packedColor, packedShadowColor) && ensureStyleSheet())
+        return new Resolution(DERIVED_SHADOW_CLASS, "color: " + PackedColor.asNonAlphaHex(packedColor) + ';');
+
+      return new Resolution(null, makeInlineStyle(packedColor, packedShadowColor));
+    }
+
+    if (classNames.size() >= MAX_CLASS_COUNT || !ensureStyleSheet())
+      return new Resolution(null, makeInlineStyle(packedColor, packedShadowColor));
+
+    className = COLOR_CLASS_PREFIX + classNames.size();
+
+    insertRule(styleSheet, makeRule(className, makeInlineStyle(packedColor, packedShadowColor)));
+    Stats.count(Stats.Counter.COLOR_RULES_INSERTED);
+
+    classNames.put(pair, className);
+    return new Resolution(className, null);
+  }
+
+  public static @Nullable String makeInlineStyle(long packedColor, long packedShadowColor) {
+    if (packedColor == PackedColor.NULL_SENTINEL && packedShadowColor == PackedColor.NULL_SENTINEL)
+      return null;
+
+    StringBuilder result = new StringBuilder();
+
+    if (packedColor != PackedColor.NULL_SENTINEL)
+      result.append("color: ").append(PackedColor.asNonAlphaHex(packedColor)).append(';');
+
+    if (packedShadowColor != PackedColor.NULL_SENTINEL) {
+      if (result.length() != 0)
+        result.append(' ');
+
+      result.append("--shadow-color: ").append(PackedColor.asAlphaHex(packedShadowColor)).append(';');
+    }
+
+    return result.toString();
+  }
+
+  private boolean ensureStyleSheet() {
+    if (styleSheet != null)
+      return true;
+
+    styleSheet = createStyleSheet();
+
+    if (styleSheet == null)
+      return false;
+
+    // Mixing with transparent keeps the channels of the current color, while scaling its alpha
+    double shadowPercentage = Math.round(DERIVED_SHADOW_ALPHA * 10000.0 / 255) / 100.0;
+
+    insertRule(styleSheet, makeRule(
+      DERIVED_SHADOW_CLASS,
+      "--shadow-color: color-mix(in srgb, currentColor " + shadowPercentage + "%, transparent);"
+    ));
+
+    return true;
+  }
+
+  private static boolean isDerivedShadow(long packedColor, long packedShadowColor) {
+    return packedColor != PackedColor.NULL_SENTINEL
+      && packedShadowColor == PackedColor.setClampedA(packedColor, DERIVED_SHADOW_ALPHA);
+  }
+
+  // The class is repeated to outweigh default colors which stylesheets may set on components by their class
+  private static String makeRule(String className, String declarations) {
+    return "." + className + "." + className + " { " + declarations + " }";
+  }
+}
@@ -0,0 +1,122 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class CompiledTemplate {
+
+  public final ParseResult parseResult;
+
+  // Lines which are currently mounted on the page, as emitted by the last in-place render
+  public @Nullable List<HTMLNode> mountedLines;
+
+  // Render which materializes the mounted lines in slices; if it has been left pending, they cannot be patched
+  public @Nullable SlicedRender mountingRender;
+
+  // Variables bound from JS, which are kept across renders, such that only changes have to be passed
+  public final Map<String, Object> boundVariables = new HashMap<>();
+
+  // Names the interpreter looked up during the last render, whether they were bound or not; null before the first one
+  private @Nullable Set<String> readVariables;
+
+  private @Nullable Set<String> identifiers;
+
+  public CompiledTemplate(ParseResult parseResult) {
+    this.parseResult = parseResult;
+  }
+
+  /**
+   * Wraps the variables of a render, to be handed to the environment as its own map, such that every
+   * name looked up on it during interpretation is recorded as read by the template.
+   */
+  public Map<String, Object> recordReads(Map<String, Object> variables) {
+    readVariables = new HashSet<>();
+    return new RecordingVariables(variables, readVariables);
+  }
+
+  /**
+   * Whether the last render looked up the variable of the given name, and thus whether changing it may change the result;
+   * as lookups are recorded per template, not per line, every change of a name read re-renders the whole template. If no
+   * lookups have been recorded at all, e.g. as the environment kept a copy of the map, the template may read any name which
+   * its source contains as an identifier-like word, which is a superset of all variables read.
+   */
+  public boolean mayRead(String name) {
+    if (readVariables == null)
+      return true;
+
+    if (!readVariables.isEmpty())
+      return readVariables.contains(name);
+
+    if (identifiers == null)
+      identifiers = collectIdentifiers(parseResult.input);
+
+    return identifiers.contains(name);
+  }
+
+  private static class RecordingVariables extends HashMap<String, Object> {
+
+    private final Set<String> reads;
+
+    RecordingVariables(Map<String, Object> variables, Set<String> reads) {
+      super(variables);
+      this.reads = reads;
+    }
+
+    @Override
+    public Object get(Object key) {
+      record(key);
+      return super.get(key);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+      record(key);
+      return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      record(key);
+      return super.containsKey(key);
+    }
+
+    private void record(Object key) {
+      if (key instanceof String)
+        reads.add((String) key);
+    }
+  }
+
+  private static Set<String> collectIdentifiers(String input) {
+    Set<String> result = new HashSet<>();
+    int index = 0;
+
+    while (index < input.length()) {
+      if (!isIdentifierStart(input.charAt(index))) {
+        ++index;
+        continue;
+      }
+
+      int start = index;
+
+      while (index < input.length() && isIdentifierPart(input.charAt(index)))
+        ++index;
+
+      result.add(input.substring(start, index));
+    }
+
+    return result;
+  }
+
+  private static boolean isIdentifierStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return isIdentifierStart(c) || (c >= '0' && c <= '9');
+  }
+}
@@ -0,0 +1,30 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompiledTemplates {
+
+  public static final CompiledTemplates INSTANCE = new CompiledTemplates();
+
+  private final Map<Integer, CompiledTemplate> templateByHandle = new HashMap<>();
+  private int nextHandle = 1;
+
+  private CompiledTemplates() {}
+
+  public int register(ParseResult parseResult) {
+    int handle = nextHandle++;
+    templateByHandle.put(handle, new CompiledTemplate(parseResult));
+    return handle;
+  }
+
+  public @Nullable CompiledTemplate get(int handle) {
+    return templateByHandle.get(handle);
+  }
+
+  public boolean release(int handle) {
+    return templateByHandle.remove(handle) != null;
+  }
+}
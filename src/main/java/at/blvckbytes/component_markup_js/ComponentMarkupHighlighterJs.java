@@ -0,0 +1,108 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.JSExport;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.typedarrays.Int32Array;
+
+/**
+ * Entry-point of the highlighter-only bundle, which merely parses and emits tokens; the interpreter,
+ * the HTML-constructor and the formatter-modules are thereby unreachable and left out by TeaVM.
+ */
+public class ComponentMarkupHighlighterJs {
+
+  @JSExport
+  public static JSParseError tokenize(String input, boolean lenient, boolean expression) {
+    ParseResult parseResult = TokenHighlighter.beginTokenization(input, lenient, expression, true);
+    TokenHighlighter.emit(parseResult, lenient, expression);
+    return parseResult.toJSParseError();
+  }
+
+  @JSExport
+  public static JSParseError tokenizePacked(String input, boolean lenient, boolean expression, boolean includeValues) {
+    ParseResult parseResult = TokenHighlighter.beginTokenization(input, lenient, expression, true);
+    TokenHighlighter.emitPacked(parseResult, lenient, expression, includeValues);
+    return parseResult.toJSParseError();
+  }
+
+  @JSExport
+  public static JSParseError tokenizeStreamed(String input, boolean lenient, boolean expression, int chunkSize, boolean includeValues) {
+    ParseResult parseResult = TokenHighlighter.beginTokenization(input, lenient, expression, false);
+    TokenHighlighter.emitStreamed(parseResult, chunkSize, includeValues);
+    return parseResult.toJSParseError();
+  }
+
+  @JSExport
+  public static JSParseError tokenizeViewport(String input, boolean lenient, boolean expression, int rangeStart, int rangeEnd, boolean includeValues) {
+    ParseResult parseResult = TokenHighlighter.beginTokenization(input, lenient, expression, true);
+    TokenHighlighter.emitViewport(parseResult, lenient, expression, rangeStart, rangeEnd, includeValues);
+    return parseResult.toJSParseError();
+  }
+
+  @JSExport
+  public static int emitTokenRange(int rangeStart, int rangeEnd, boolean includeValues) {
+    Stats.beginCall();
+    return TokenHighlighter.emitRange(rangeStart, rangeEnd, includeValues);
+  }
+
+  /**
+   * Queries on the tokens of the last tokenization, which are indexed on first use; see {@link TokenHighlighter#findTokenAt},
+   * {@link TokenHighlighter#findEnclosingTokens} and {@link TokenHighlighter#findMatchingTag} for their results.
+   */
+  @JSExport
+  public static @Nullable Int32Array getTokenAt(int offset) {
+    return TokenHighlighter.findTokenAt(offset);
+  }
+
+  @JSExport
+  public static @Nullable Int32Array getEnclosingTokens(int offset) {
+    return TokenHighlighter.findEnclosingTokens(offset);
+  }
+
+  @JSExport
+  public static @Nullable Int32Array getMatchingTag(int offset) {
+    return TokenHighlighter.findMatchingTag(offset);
+  }
+
+  @JSExport
+  public static JSParseError retokenize(String input, boolean lenient, boolean expression, int editStart, int removedLength, int insertedLength) {
+    Stats.beginCall();
+    return TokenHighlighter.retokenize(input, lenient, expression, editStart, removedLength, insertedLength).toJSParseError();
+  }
+
+  @JSExport
+  public static void setParseCacheCapacity(int capacity) {
+    ParseCache.INSTANCE.getResults().setCapacity(capacity);
+  }
+
+  @JSExport
+  public static void clearParseCache() {
+    ParseCache.INSTANCE.getResults().clear();
+  }
+
+  @JSExport
+  public static int getParseCacheHits() {
+    return ParseCache.INSTANCE.getResults().getHits();
+  }
+
+  @JSExport
+  public static int getParseCacheMisses() {
+    return ParseCache.INSTANCE.getResults().getMisses();
+  }
+
+  @JSExport
+  public static void setStatsEnabled(boolean enabled) {
+    Stats.setEnabled(enabled);
+  }
+
+  // Same as the renderer's getStats, of which only the parse and emit phases and the parse-cache apply here
+  @JSExport
+  public static JSObject getStats() {
+    return Stats.toJSObject();
+  }
+
+  @JSExport
+  public static void resetStats() {
+    Stats.reset();
+  }
+}
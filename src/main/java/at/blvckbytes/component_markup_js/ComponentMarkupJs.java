@@ -2,19 +2,14 @@ package at.blvckbytes.component_markup_js;
 
 import at.blvckbytes.component_markup.constructor.SlotType;
 import at.blvckbytes.component_markup.expression.interpreter.InterpretationEnvironment;
-import at.blvckbytes.component_markup.expression.parser.ExpressionParseException;
-import at.blvckbytes.component_markup.expression.parser.ExpressionParser;
 import at.blvckbytes.component_markup.markup.ast.node.MarkupNode;
-import at.blvckbytes.component_markup.markup.ast.tag.built_in.BuiltInTagRegistry;
 import at.blvckbytes.component_markup.markup.interpreter.MarkupInterpreter;
-import at.blvckbytes.component_markup.markup.parser.MarkupParseException;
-import at.blvckbytes.component_markup.markup.parser.MarkupParser;
-import at.blvckbytes.component_markup.markup.parser.token.HierarchicalToken;
-import at.blvckbytes.component_markup.markup.parser.token.OutputFlag;
-import at.blvckbytes.component_markup.markup.parser.token.TokenOutput;
-import at.blvckbytes.component_markup.util.InputView;
+import org.jetbrains.annotations.Nullable;
 import org.teavm.jso.JSExport;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.core.JSArray;
 import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.typedarrays.Int32Array;
 
 import java.util.*;
 
@@ -22,74 +17,633 @@ public class ComponentMarkupJs {
 
   private static final HTMLComponentConstructor COMPONENT_CONSTRUCTOR = new HTMLComponentConstructor();
 
-  private static final EnumSet<OutputFlag> NO_FLAGS = EnumSet.noneOf(OutputFlag.class);
+  static {
+    Stats.registerCache("regex", JsInterpretationPlatform.INSTANCE.getRegexCache());
+    Stats.registerCache("translationTemplate", TranslationTemplate.getCache());
+  }
+
+  public static final int BATCH_LENIENT = 1;
+  public static final int BATCH_EXPRESSION = 2;
+  public static final int BATCH_INTERPRET = 4;
+
+  // Results of bindVariables
+  public static final int BIND_UNKNOWN_HANDLE = -1;
+  public static final int BIND_UNAFFECTED = 0;
+  public static final int BIND_RENDERED = 1;
+
+  private static boolean htmlStringOutput;
+
+  // Zero means that all lines are emitted at once
+  private static double renderBudgetMillis;
+  private static int lastSlicedRenderHandle;
+  private static @Nullable SlicedRender pendingRender;
 
-  private static final EnumSet<OutputFlag> LENIENT_FLAGS = EnumSet.of(
-    OutputFlag.ENABLE_DUMMY_TAG,
-    OutputFlag.UNMATCHED_CLOSING_TAGS_ARE_NO_OPS,
-    OutputFlag.ALLOW_MISSING_ATTRIBUTES
-  );
 
   @JSExport
   public static JSParseError tokenize(String input, boolean lenient, boolean expression, boolean interpret, int renderCount) {
-    TokenOutput tokenOutput = new TokenOutput(lenient ? LENIENT_FLAGS : NO_FLAGS);
-    InputView inputView = InputView.of(input);
-
-    String errorMessage = null;
-    int errorCharIndex = -1;
-
-    List<HierarchicalToken> hierarchicalTokens = null;
-
-    if (expression) {
-      try {
-        tokenOutput.onInitialization(inputView);
-        ExpressionParser.parse(inputView, tokenOutput);
-        tokenOutput.onInputEnd();
-        hierarchicalTokens = tokenOutput.getResult();
-      } catch (ExpressionParseException e) {
-        errorMessage = e.getErrorMessage();
-        errorCharIndex = e.position;
-      }
+    ParseResult parseResult = beginTokenization(input, lenient, expression, true, interpret, renderCount);
+    TokenHighlighter.emit(parseResult, lenient, expression);
+
+    return parseResult.toJSParseError();
+  }
+
+  /**
+   * Same as {@link #tokenize}, but hands all tokens to JS in a single call of {@link JSTokenEmitter#onEmitTokens},
+   * packed into one typed array. Values are only built if requested, as they are mere slices of the input.
+   */
+  @JSExport
+  public static JSParseError tokenizePacked(String input, boolean lenient, boolean expression, boolean interpret, int renderCount, boolean includeValues) {
+    ParseResult parseResult = beginTokenization(input, lenient, expression, true, interpret, renderCount);
+    TokenHighlighter.emitPacked(parseResult, lenient, expression, includeValues);
+
+    return parseResult.toJSParseError();
+  }
+
+  /**
+   * Same as {@link #tokenizePacked}, but hands tokens to JS in chunks of at most chunkSize tokens via
+   * {@link JSTokenEmitter#onEmitTokenChunk}, which keeps memory bounded on both sides for large inputs; chunks are
+   * emitted once the input has been parsed, which is not cached, as the cache would retain the whole token-tree.
+   */
+  @JSExport
+  public static JSParseError tokenizeStreamed(String input, boolean lenient, boolean expression, boolean interpret, int renderCount, int chunkSize, boolean includeValues) {
+    ParseResult parseResult = beginTokenization(input, lenient, expression, false, interpret, renderCount);
+    TokenHighlighter.emitStreamed(parseResult, chunkSize, includeValues);
+
+    return parseResult.toJSParseError();
+  }
+
+  /**
+   * Same as {@link #tokenizePacked}, but only emits the tokens touching the visible character-range [rangeStart, rangeEnd],
+   * such that highlighting-work on the JS side depends on the viewport, not the document; all tokens are kept, and
+   * further ranges, e.g. when scrolling, can be fetched by {@link #emitTokenRange} without parsing again.
+   */
+  @JSExport
+  public static JSParseError tokenizeViewport(String input, boolean lenient, boolean expression, boolean interpret, int renderCount, int rangeStart, int rangeEnd, boolean includeValues) {
+    ParseResult parseResult = beginTokenization(input, lenient, expression, true, interpret, renderCount);
+    TokenHighlighter.emitViewport(parseResult, lenient, expression, rangeStart, rangeEnd, includeValues);
+
+    return parseResult.toJSParseError();
+  }
+
+  // Returns the number of tokens emitted, or -1 if there is no last tokenization to take them from
+  @JSExport
+  public static int emitTokenRange(int rangeStart, int rangeEnd, boolean includeValues) {
+    Stats.beginCall();
+    return TokenHighlighter.emitRange(rangeStart, rangeEnd, includeValues);
+  }
+
+  /**
+   * Queries on the tokens of the last tokenization, which are indexed on first use; see {@link TokenHighlighter#findTokenAt},
+   * {@link TokenHighlighter#findEnclosingTokens} and {@link TokenHighlighter#findMatchingTag} for their results.
+   */
+  @JSExport
+  public static @Nullable Int32Array getTokenAt(int offset) {
+    return TokenHighlighter.findTokenAt(offset);
+  }
+
+  @JSExport
+  public static @Nullable Int32Array getEnclosingTokens(int offset) {
+    return TokenHighlighter.findEnclosingTokens(offset);
+  }
+
+  @JSExport
+  public static @Nullable Int32Array getMatchingTag(int offset) {
+    return TokenHighlighter.findMatchingTag(offset);
+  }
+
+  /**
+   * Re-tokenizes the input after an edit which replaced removedLength characters at editStart of the previously
+   * tokenized input by insertedLength characters, only patching the window of tokens which changed.
+   */
+  @JSExport
+  public static JSParseError retokenize(String input, boolean lenient, boolean expression, int editStart, int removedLength, int insertedLength) {
+    Stats.beginCall();
+    return TokenHighlighter.retokenize(input, lenient, expression, editStart, removedLength, insertedLength).toJSParseError();
+  }
+
+  /**
+   * Parses a markup-template once, so that it can be rendered any number of times
+   * via {@link #render}, until it's freed again by {@link #release}.
+   */
+  @JSExport
+  public static JSCompileResult compile(String input, boolean lenient) {
+    Stats.beginCall();
+
+    ParseResult parseResult = ParseResult.parse(input, lenient, false);
+
+    if (parseResult.ast == null)
+      return JSCompileResultFactory.create(-1, parseResult.errorMessage, parseResult.errorCharIndex);
+
+    return JSCompileResultFactory.create(CompiledTemplates.INSTANCE.register(parseResult), null, -1);
+  }
+
+  /**
+   * Interprets a compiled template with the variables held by the passed plain JS-object, and emits the
+   * resulting components via {@link JSComponentsEmitter#onEmitComponents}; returns false for unknown handles.
+   */
+  @JSExport
+  public static boolean render(int handle, @Nullable JSObject variables) {
+    Stats.beginCall();
+
+    CompiledTemplate template = CompiledTemplates.INSTANCE.get(handle);
+
+    if (template == null || template.parseResult.ast == null)
+      return false;
+
+    interpretAndEmit(handle, template.parseResult.ast, JSValueConverter.toVariables(variables));
+    return true;
+  }
+
+  /**
+   * Renders a compiled template, but instead of emitting new elements on every call, patches the lines which
+   * the previous call of this method emitted in place, by comparing both results by their structural position.
+   * Lines are only emitted anew if there were none before or if their number changed, sliced by the render budget, while
+   * patches are applied at once; serialized HTML-output cannot be patched and is always emitted anew. Returns whether lines were.
+   */
+  @JSExport
+  public static boolean renderInPlace(int handle, @Nullable JSObject variables) {
+    Stats.beginCall();
+
+    CompiledTemplate template = CompiledTemplates.INSTANCE.get(handle);
+
+    if (template == null || template.parseResult.ast == null)
+      return false;
+
+    return renderInPlace(handle, template, JSValueConverter.toVariables(variables));
+  }
+
+  /**
+   * Binds variables, being scalars, arrays or plain objects, to a compiled template, where they're kept across calls,
+   * such that only changes have to be passed; null unbinds a variable. The template is only re-rendered, in place, if its
+   * last render looked up any variable which actually changed, and otherwise left untouched; returns {@link #BIND_RENDERED}
+   * or {@link #BIND_UNAFFECTED} accordingly, or {@link #BIND_UNKNOWN_HANDLE}.
+   */
+  @JSExport
+  public static int bindVariables(int handle, @Nullable JSObject variables) {
+    Stats.beginCall();
+
+    CompiledTemplate template = CompiledTemplates.INSTANCE.get(handle);
+
+    if (template == null || template.parseResult.ast == null)
+      return BIND_UNKNOWN_HANDLE;
+
+    boolean affected = template.mountedLines == null;
+
+    for (var variable : JSValueConverter.toVariables(variables).entrySet()) {
+      String name = variable.getKey();
+      Object value = variable.getValue();
+
+      // Bound values are never null, thus null only ever matches unbound variables
+      if (Objects.equals(template.boundVariables.get(name), value))
+        continue;
+
+      if (value == null)
+        template.boundVariables.remove(name);
+      else
+        template.boundVariables.put(name, value);
+
+      if (template.mayRead(name))
+        affected = true;
     }
 
-    else {
-      try {
-        MarkupNode ast = MarkupParser.parse(inputView, BuiltInTagRegistry.INSTANCE, tokenOutput);
-
-        if (interpret) {
-          List<HTMLElement> result = MarkupInterpreter.interpret(
-            ast,
-            SlotType.CHAT,
-            new InterpretationEnvironment(new HashMap<>(), InterpretationEnvironment.DEFAULT_INTERPRETER, JsInterpretationPlatform.INSTANCE, null)
-              .withVariable("render_count", renderCount),
-            COMPONENT_CONSTRUCTOR,
-            ConsoleLogger.INSTANCE
-          );
-
-          HTMLElement[] components = new HTMLElement[result.size()];
-
-          for (int i = 0; i < components.length; ++i) {
-            HTMLElement component = result.get(i);
-            HTMLComponentConstructor.addClass(component, HTMLComponentConstructor.LINE_CLASS);
-            components[i] = component;
-          }
-
-          JSComponentsEmitter.onEmitComponents(components);
-        }
-
-        hierarchicalTokens = tokenOutput.getResult();
-      } catch (MarkupParseException e) {
-        errorMessage = e.getErrorMessage();
-        errorCharIndex = e.getCharIndex();
+    if (!affected)
+      return BIND_UNAFFECTED;
+
+    renderInPlace(handle, template, template.boundVariables);
+    return BIND_RENDERED;
+  }
+
+  private static boolean renderInPlace(int handle, CompiledTemplate template, Map<String, Object> variables) {
+    pendingRender = null;
+
+    // Variables are handed over as the environment's own map, as only lookups on that can be recorded
+    InterpretationEnvironment environment = new InterpretationEnvironment(
+      template.recordReads(variables), InterpretationEnvironment.DEFAULT_INTERPRETER, JsInterpretationPlatform.INSTANCE, null
+    );
+
+    List<HTMLNode> lines = interpret(template.parseResult.ast, environment);
+
+    if (htmlStringOutput) {
+      template.mountedLines = null;
+      template.mountingRender = null;
+
+      ObfuscationAnimator.INSTANCE.clear(handle);
+      JSComponentsEmitter.onEmitComponentsHtml(HTMLComponentConstructor.toHtml(lines));
+      return true;
+    }
+
+    List<HTMLNode> mountedLines = template.mountedLines;
+
+    // Lines of a sliced render which has been cancelled or superseded are only partially materialized
+    if (template.mountingRender != null && template.mountingRender.isPending())
+      mountedLines = null;
+
+    template.mountedLines = lines;
+    template.mountingRender = null;
+
+    boolean patched = mountedLines != null && HTMLComponentConstructor.patchElements(mountedLines, lines);
+
+    if (!patched)
+      template.mountingRender = emitElements(lines);
+
+    ObfuscationAnimator.INSTANCE.track(handle, lines);
+    return !patched;
+  }
+
+  @JSExport
+  public static boolean release(int handle) {
+    ObfuscationAnimator.INSTANCE.clear(handle);
+    return CompiledTemplates.INSTANCE.release(handle);
+  }
+
+  /**
+   * Parses, tokenizes and optionally interprets without touching the DOM or calling back into JS, but returns
+   * everything as one structured-cloneable object instead. This allows to run the module within a Web Worker and
+   * post the result to the main thread, which merely has to apply the html by a single innerHTML-write. Within
+   * workers, translations and keybinds are to be loaded as tables or provided as functions on globalThis.
+   */
+  @JSExport
+  public static JSDetachedRenderResult renderDetached(String input, boolean lenient, boolean expression, boolean interpret, @Nullable JSObject variables) {
+    Stats.beginCall();
+
+    ParseResult parseResult = ParseCache.INSTANCE.parse(input, lenient, expression);
+
+    String html = null;
+
+    if (interpret && parseResult.ast != null)
+      html = HTMLComponentConstructor.toHtml(interpret(parseResult.ast, JSValueConverter.toVariables(variables)));
+
+    TokenSequence tokenSequence = parseResult.getTokenSequence();
+
+    return JSDetachedRenderResultFactory.create(
+      parseResult.errorMessage,
+      parseResult.errorCharIndex,
+      tokenSequence == null ? null : tokenSequence.toInt32Array(0, tokenSequence.size()),
+      TokenSequence.getTypeNames(),
+      html
+    );
+  }
+
+  /**
+   * Parses and optionally interprets many independent inputs at once, sharing one environment, built from the passed
+   * variables, across all of them. Instead of calling back into JS per token and per item, everything is returned
+   * in a single result, grouped by item. Options hold per-item flags: {@link #BATCH_LENIENT}, {@link #BATCH_EXPRESSION}
+   * and {@link #BATCH_INTERPRET}; items without an entry in options are parsed as strict markup and interpreted.
+   */
+  @JSExport
+  public static JSBatchRenderResult renderBatch(String[] inputs, int[] options, @Nullable JSObject variables) {
+    Stats.beginCall();
+
+    InterpretationEnvironment environment = null;
+
+    TokenSequence[] tokenSequences = new TokenSequence[inputs.length];
+    String[] errorMessages = new String[inputs.length];
+    int[] errorCharIndices = new int[inputs.length];
+    String[] html = htmlStringOutput ? new String[inputs.length] : null;
+    JSArray<JSArray<HTMLElement>> components = htmlStringOutput ? null : new JSArray<>(inputs.length);
+
+    int totalTokenCount = 0;
+
+    for (int index = 0; index < inputs.length; ++index) {
+      int itemOptions = index < options.length ? options[index] : BATCH_INTERPRET;
+
+      ParseResult parseResult = ParseCache.INSTANCE.parse(
+        inputs[index],
+        (itemOptions & BATCH_LENIENT) != 0,
+        (itemOptions & BATCH_EXPRESSION) != 0
+      );
+
+      errorMessages[index] = parseResult.errorMessage;
+      errorCharIndices[index] = parseResult.errorCharIndex;
+
+      TokenSequence tokenSequence = parseResult.getTokenSequence();
+
+      if (tokenSequence != null) {
+        tokenSequences[index] = tokenSequence;
+        totalTokenCount += tokenSequence.size();
+      }
+
+      if ((itemOptions & BATCH_INTERPRET) == 0 || parseResult.ast == null) {
+        // Otherwise, the item would be a hole within the array, which reads as undefined rather than null
+        if (components != null)
+          components.set(index, null);
+
+        continue;
       }
+
+      if (environment == null)
+        environment = makeEnvironment(JSValueConverter.toVariables(variables));
+
+      List<HTMLNode> lines = interpret(parseResult.ast, environment);
+
+      if (html != null) {
+        html[index] = HTMLComponentConstructor.toHtml(lines);
+        continue;
+      }
+
+      JSArray<HTMLElement> itemComponents = new JSArray<>();
+
+      for (HTMLElement element : HTMLComponentConstructor.toElements(lines))
+        itemComponents.push(element);
+
+      components.set(index, itemComponents);
+    }
+
+    int[] tokens = new int[totalTokenCount * TokenSequence.getEntrySize()];
+    int[] tokenOffsets = new int[inputs.length + 1];
+    int tokenOffset = 0;
+
+    for (int index = 0; index < inputs.length; ++index) {
+      tokenOffsets[index] = tokenOffset;
+
+      TokenSequence tokenSequence = tokenSequences[index];
+
+      if (tokenSequence != null)
+        tokenOffset = tokenSequence.writeEntries(0, tokenSequence.size(), tokens, tokenOffset);
+    }
+
+    tokenOffsets[inputs.length] = tokenOffset;
+
+    Stats.count(Stats.Counter.TOKENS_EMITTED, totalTokenCount);
+
+    return JSBatchRenderResultFactory.create(
+      TokenSequence.wrap(tokens),
+      TokenSequence.wrap(tokenOffsets),
+      TokenSequence.getTypeNames(),
+      errorMessages,
+      TokenSequence.wrap(errorCharIndices),
+      components,
+      html
+    );
+  }
+
+  /**
+   * Switches all rendering entry-points between emitting live elements via {@link JSComponentsEmitter#onEmitComponents}
+   * and emitting one serialized string via {@link JSComponentsEmitter#onEmitComponentsHtml}.
+   */
+  @JSExport
+  public static void setHtmlStringOutput(boolean enabled) {
+    htmlStringOutput = enabled;
+  }
+
+  /**
+   * When enabled, the text-nodes of obfuscated components within the lines emitted last per template are tracked, such that
+   * {@link #animateObfuscation} can animate them without re-rendering, until the template is released; lines emitted by
+   * tokenizing with interpretation are tracked as if they were a template of their own, and serialized HTML-output never is.
+   */
+  @JSExport
+  public static void setObfuscationAnimation(boolean enabled) {
+    ObfuscationAnimator.INSTANCE.setEnabled(enabled);
+  }
+
+  /**
+   * Substitutes the characters of all tracked obfuscated text by random ones of equal width, to be called once
+   * per frame instead of re-rendering with a bumped render_count; returns the number of text-nodes rewritten.
+   */
+  @JSExport
+  public static int animateObfuscation() {
+    return ObfuscationAnimator.INSTANCE.animate();
+  }
+
+  /**
+   * Whether hover-texts of emitted elements are only materialized once the pointer first enters their component, which
+   * is disabled by default; the serialized HTML-output always contains them, as it cannot carry listeners.
+   */
+  @JSExport
+  public static void setDeferredHoverTexts(boolean enabled) {
+    DeferredHoverTexts.INSTANCE.setEnabled(enabled);
+  }
+
+  // How many deferred hover-texts are kept materialized at most, before the least recent ones are dropped again
+  @JSExport
+  public static void setHoverTextCapacity(int capacity) {
+    DeferredHoverTexts.INSTANCE.setCapacity(capacity);
+  }
+
+  /**
+   * Drops all materialized deferred hover-texts from the DOM, e.g. when memory is under pressure; they're
+   * rebuilt on their next hover. Returns how many have been dropped.
+   */
+  @JSExport
+  public static int releaseHoverTexts() {
+    return DeferredHoverTexts.INSTANCE.release();
+  }
+
+  /**
+   * Limits the time which materializing and emitting lines may take per call; lines which didn't fit into the budget are
+   * kept as a pending render, to be continued by {@link #continueRender}. The first slice is emitted via
+   * {@link JSComponentsEmitter#onEmitComponents}, all following ones via {@link JSComponentsEmitter#onAppendComponents}.
+   * Interpretation itself cannot be interrupted, and the serialized HTML-output is never sliced.
+   */
+  @JSExport
+  public static void setRenderBudget(double budgetMillis) {
+    renderBudgetMillis = Math.max(0, budgetMillis);
+  }
+
+  // Handle of the render which still has lines left to be emitted, or zero if there is none
+  @JSExport
+  public static int getPendingRender() {
+    return pendingRender == null ? 0 : pendingRender.handle;
+  }
+
+  /**
+   * Emits the next slice of the pending render, if its handle is still current, as every new render cancels
+   * the previous one; returns whether lines are still left, in which case the caller should schedule another call.
+   */
+  @JSExport
+  public static boolean continueRender(int handle) {
+    Stats.beginCall();
+
+    if (pendingRender == null || pendingRender.handle != handle)
+      return false;
+
+    if (pendingRender.proceed(renderBudgetMillis))
+      return true;
+
+    pendingRender = null;
+    return false;
+  }
+
+  @JSExport
+  public static void cancelRender() {
+    pendingRender = null;
+  }
+
+  // Every tokenization may render its input as well, before its tokens are emitted
+  private static ParseResult beginTokenization(String input, boolean lenient, boolean expression, boolean cached, boolean interpret, int renderCount) {
+    ParseResult parseResult = TokenHighlighter.beginTokenization(input, lenient, expression, cached);
+
+    if (interpret && parseResult.ast != null)
+      interpretAndEmit(ObfuscationAnimator.NO_TEMPLATE, parseResult.ast, makeRenderCountVariables(renderCount));
+
+    return parseResult;
+  }
+
+  private static Map<String, Object> makeRenderCountVariables(int renderCount) {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("render_count", renderCount);
+    return variables;
+  }
+
+  private static InterpretationEnvironment makeEnvironment(Map<String, Object> variables) {
+    InterpretationEnvironment environment = new InterpretationEnvironment(new HashMap<>(), InterpretationEnvironment.DEFAULT_INTERPRETER, JsInterpretationPlatform.INSTANCE, null);
+
+    for (var variable : variables.entrySet())
+      environment = environment.withVariable(variable.getKey(), variable.getValue());
+
+    return environment;
+  }
+
+  private static List<HTMLNode> interpret(MarkupNode ast, Map<String, Object> variables) {
+    return interpret(ast, makeEnvironment(variables));
+  }
+
+  private static List<HTMLNode> interpret(MarkupNode ast, InterpretationEnvironment environment) {
+    double start = Stats.begin();
+
+    List<HTMLNode> result = MarkupInterpreter.interpret(
+      ast,
+      SlotType.CHAT,
+      environment,
+      COMPONENT_CONSTRUCTOR,
+      ConsoleLogger.INSTANCE
+    );
+
+    Stats.end(Stats.Phase.INTERPRET, start);
+    return result;
+  }
+
+  // Owner is the handle of the rendered template, or NO_TEMPLATE, as which the animator tracks the emitted lines
+  private static void interpretAndEmit(int owner, MarkupNode ast, Map<String, Object> variables) {
+    pendingRender = null;
+
+    List<HTMLNode> result = interpret(ast, variables);
+
+    if (htmlStringOutput) {
+      ObfuscationAnimator.INSTANCE.clear(owner);
+      JSComponentsEmitter.onEmitComponentsHtml(HTMLComponentConstructor.toHtml(result));
+      return;
     }
 
-    if (hierarchicalTokens != null) {
-      HierarchicalToken.toSequence(hierarchicalTokens, (type, value) -> {
-        JSTokenEmitter.onEmitToken(type.name(), value.startInclusive, value.endExclusive, value.buildString());
-      });
+    ObfuscationAnimator.INSTANCE.track(owner, result);
+    emitElements(result);
+  }
+
+  // Emits lines as elements, sliced if a render budget has been set; returns the render left pending, if any
+  private static @Nullable SlicedRender emitElements(List<HTMLNode> lines) {
+    if (renderBudgetMillis <= 0) {
+      JSComponentsEmitter.onEmitComponents(HTMLComponentConstructor.toElements(lines));
+      return null;
     }
 
-    return JSParseErrorFactory.create(errorMessage, errorCharIndex);
+    SlicedRender render = new SlicedRender(++lastSlicedRenderHandle, lines);
+
+    if (render.proceed(renderBudgetMillis))
+      pendingRender = render;
+
+    return pendingRender;
+  }
+
+  @JSExport
+  public static void setParseCacheCapacity(int capacity) {
+    ParseCache.INSTANCE.getResults().setCapacity(capacity);
+  }
+
+  @JSExport
+  public static int getParseCacheHits() {
+    return ParseCache.INSTANCE.getResults().getHits();
+  }
+
+  @JSExport
+  public static int getParseCacheMisses() {
+    return ParseCache.INSTANCE.getResults().getMisses();
+  }
+
+  @JSExport
+  public static void clearParseCache() {
+    ParseCache.INSTANCE.getResults().clear();
+  }
+
+  /**
+   * Loads a whole language, given as a JSON-object of translation-keys to values, such that translations no
+   * longer have to be resolved via JS-callbacks; a later call with another version swaps out the table entirely.
+   */
+  @JSExport
+  public static void loadTranslations(String json, int version) {
+    LookupTable.TRANSLATIONS.load(JSValueConverter.toStringMap(JSValueConverter.parseJson(json)), version);
+  }
+
+  @JSExport
+  public static void loadTranslationEntries(String[] keys, String[] values, int version) {
+    LookupTable.TRANSLATIONS.load(keys, values, version);
+  }
+
+  @JSExport
+  public static int getTranslationsVersion() {
+    return LookupTable.TRANSLATIONS.getVersion();
+  }
+
+  @JSExport
+  public static void unloadTranslations() {
+    LookupTable.TRANSLATIONS.unload();
+  }
+
+  @JSExport
+  public static void loadKeybinds(String json, int version) {
+    LookupTable.KEYBINDS.load(JSValueConverter.toStringMap(JSValueConverter.parseJson(json)), version);
+  }
+
+  @JSExport
+  public static void loadKeybindEntries(String[] keys, String[] values, int version) {
+    LookupTable.KEYBINDS.load(keys, values, version);
+  }
+
+  @JSExport
+  public static int getKeybindsVersion() {
+    return LookupTable.KEYBINDS.getVersion();
+  }
+
+  @JSExport
+  public static void unloadKeybinds() {
+    LookupTable.KEYBINDS.unload();
+  }
+
+  @JSExport
+  public static void setRegexCacheCapacity(int capacity) {
+    JsInterpretationPlatform.INSTANCE.getRegexCache().setCapacity(capacity);
+  }
+
+  @JSExport
+  public static int getRegexCacheHits() {
+    return JsInterpretationPlatform.INSTANCE.getRegexCache().getHits();
+  }
+
+  @JSExport
+  public static int getRegexCacheMisses() {
+    return JsInterpretationPlatform.INSTANCE.getRegexCache().getMisses();
+  }
+
+  /**
+   * Enables collecting the counters reported by {@link #getStats}; while disabled, collection costs next to nothing.
+   */
+  @JSExport
+  public static void setStatsEnabled(boolean enabled) {
+    Stats.setEnabled(enabled);
+  }
+
+  /**
+   * Reports cumulative and last durations in milliseconds for the parse, interpret, dom and emit phases, as well as
+   * counters of emitted tokens, created components and DOM-nodes, calls into JS and hits/misses of all caches. Last
+   * durations sum up all runs of a phase within the most recent exported call which ran it; hover-texts, which are
+   * materialized on events, only add to the cumulative durations.
+   */
+  @JSExport
+  public static JSObject getStats() {
+    return Stats.toJSObject();
+  }
+
+  @JSExport
+  public static void resetStats() {
+    Stats.reset();
   }
 }
@@ -0,0 +1,113 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Defers materializing hover-containers until the pointer first enters their component, as only a tiny
+ * fraction of them is ever looked at; until then, they solely exist as {@link HTMLNode}s. Materialized
+ * containers are retained up to a capacity, beyond which the least recently materialized ones are
+ * dropped from the DOM again, to be rebuilt on their next hover.
+ */
+public class DeferredHoverTexts {
+
+  public static final DeferredHoverTexts INSTANCE = new DeferredHoverTexts();
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  /**
+   * Target of a component's listener, which is handed over to the node patching it in place,
+   * such that the listener always materializes the hover-text currently rendered.
+   */
+  public static class Anchor {
+
+    private HTMLNode component;
+
+    private Anchor(HTMLNode component) {
+      this.component = component;
+    }
+
+    public void moveTo(HTMLNode component) {
+      this.component = component;
+    }
+  }
+
+  // In order of materialization, such that the first container is the next one to be evicted
+  private final LinkedHashSet<HTMLNode> materialized = new LinkedHashSet<>();
+
+  private boolean enabled;
+  private int capacity = DEFAULT_CAPACITY;
+
+  private DeferredHoverTexts() {}
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = Math.max(1, capacity);
+    evictExcess();
+  }
+
+  /**
+   * Registers the listener which materializes the hover-container of the given, materialized component.
+   */
+  public Anchor attach(HTMLNode component, HTMLElement element) {
+    Anchor anchor = new Anchor(component);
+    element.addEventListener("mouseenter", event -> materialize(anchor.component));
+    return anchor;
+  }
+
+  // Called whenever a tracked container has been taken over by another one while patching in place
+  public void replace(HTMLNode previousContainer, @Nullable HTMLNode container) {
+    if (!materialized.remove(previousContainer) || container == null)
+      return;
+
+    materialized.add(container);
+  }
+
+  /**
+   * Drops all materialized hover-containers from the DOM; returns how many have been dropped.
+   */
+  public int release() {
+    int releasedCount = materialized.size();
+
+    for (HTMLNode container : materialized)
+      container.detach();
+
+    materialized.clear();
+    return releasedCount;
+  }
+
+  private void materialize(HTMLNode component) {
+    HTMLNode container = component.getHoverContainer();
+
+    if (container == null || container.getDomNode() != null || component.getDomNode() == null)
+      return;
+
+    double start = Stats.begin();
+
+    component.materializeHoverContainer(container, HTMLComponentConstructor.dom());
+
+    Stats.endOutsideCall(Stats.Phase.DOM, start);
+
+    materialized.add(container);
+    evictExcess();
+  }
+
+  private void evictExcess() {
+    Iterator<HTMLNode> iterator = materialized.iterator();
+
+    while (materialized.size() > capacity) {
+      iterator.next().detach();
+      iterator.remove();
+    }
+  }
+}
@@ -13,7 +13,6 @@ import org.jetbrains.annotations.Nullable;
 import org.teavm.jso.JSBody;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
-import org.teavm.jso.dom.xml.Element;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -22,20 +21,24 @@ import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
-public class HTMLComponentConstructor implements ComponentConstructor<HTMLElement, HTMLElement> {
+/**
+ * Keeps all component-state on {@link HTMLNode}s, which are either materialized into live elements
+ * by {@link #toElements} or serialized for a single innerHTML-write, once interpretation completed.
+ */
+public class HTMLComponentConstructor implements ComponentConstructor<HTMLNode, HTMLNode> {
 
-  private static final String COMPONENT_CLASS = "rendered-component";
+  public static final String COMPONENT_CLASS = "rendered-component";
   public static final String LINE_CLASS = "rendered-component-line";
-  private static final String HOVER_TEXT_CLASS = COMPONENT_CLASS + "__hover-text";
+  public static final String HOVER_TEXT_CLASS = COMPONENT_CLASS + "__hover-text";
 
   private static final SlotContext MODIFIED_CHAT = new SlotContext((char) 0, SlotContext.getForSlot(SlotType.CHAT).defaultStyle);
 
   @JSBody(script = "return document;")
-  private static native HTMLDocument dom();
+  static native HTMLDocument dom();
 
   @Override
-  public Class<HTMLElement> getComponentClass() {
-    return HTMLElement.class;
+  public Class<HTMLNode> getComponentClass() {
+    return HTMLNode.class;
   }
 
   @Override
@@ -52,36 +55,29 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
   }
 
   @Override
-  public HTMLElement createTextComponent(String text) {
-    HTMLElement element = dom().createElement("span");
+  public HTMLNode createTextComponent(String text) {
+    Stats.count(Stats.Counter.COMPONENTS_CREATED);
 
-    addClass(element, COMPONENT_CLASS);
+    HTMLNode node = HTMLNode.component();
 
     if (!text.isEmpty()) {
       // Text-nodes are not elements, and thus hit-tests are impossible.
       // The additional container allows to avoid rendering hover-events on large whitespace.
-      HTMLElement textElement = dom().createElement("span");
-      textElement.appendChild(dom().createTextNode(text));
-      element.appendChild(textElement);
+      node.appendChild(HTMLNode.textContainer(text));
     }
 
-    return element;
+    return node;
   }
 
   @Override
-  public boolean setText(HTMLElement component, String text) {
-    var elementChildren = component.getChildren();
+  public boolean setText(HTMLNode component, String text) {
+    List<HTMLNode> children = component.getChildren();
 
-    for (int childIndex = elementChildren.getLength() - 1; childIndex >= 0; --childIndex) {
-      var child = elementChildren.item(childIndex);
-
-      if (!child.getTagName().equalsIgnoreCase("span"))
-        continue;
-
-      if (containsClass(child, COMPONENT_CLASS))
+    for (int childIndex = children.size() - 1; childIndex >= 0; --childIndex) {
+      if (!children.get(childIndex).isTextContainer())
         continue;
 
-      component.replaceChild(dom().createTextNode(text), child);
+      children.set(childIndex, HTMLNode.text(text));
       return true;
     }
 
@@ -89,8 +85,8 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
   }
 
   @Override
-  public HTMLElement createKeyComponent(String key) {
-    String binding = JSKeybindResolver.tryResolveKeybind(key);
+  public HTMLNode createKeyComponent(String key) {
+    String binding = JSKeybindResolver.resolve(key);
 
     if (binding == null)
       return createTextComponent(key);
@@ -98,7 +94,7 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
     if (binding.indexOf('.') < 0)
       return createTextComponent(binding);
 
-    String translation = JSTranslationResolver.tryResolveTranslationKey(binding);
+    String translation = JSTranslationResolver.resolve(binding);
 
     if (translation == null)
       return createTextComponent(binding);
@@ -107,77 +103,47 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
   }
 
   @Override
-  public HTMLElement createTranslateComponent(String key, List<HTMLElement> with, @Nullable String fallback) {
-    String translation = JSTranslationResolver.tryResolveTranslationKey(key);
+  public HTMLNode createTranslateComponent(String key, List<HTMLNode> with, @Nullable String fallback) {
+    String translation = JSTranslationResolver.resolve(key);
 
     if (translation == null)
       return createTextComponent(key);
 
-    List<HTMLElement> result = new ArrayList<>();
-
-    int nextAppendIndex = 0;
-    int withIndex = 0;
-
-    for (int charIndex = 0; charIndex < translation.length(); ++charIndex) {
-      int remainingChars = translation.length() - 1 - charIndex;
-
-      if (translation.charAt(charIndex) == '%' && remainingChars > 0) {
-        char nextChar = translation.charAt(charIndex + 1);
-
-        int index;
-
-        if (nextChar >= '0' && nextChar <= '9')
-          index = (nextChar - '0') - 1;
-        else
-          index = withIndex++;
+    TranslationTemplate template = TranslationTemplate.of(translation);
 
-        if (index < 0 || index >= with.size())
-          return createTextComponent(key);
-
-        if (charIndex != 0)
-          result.add(createTextComponent(translation.substring(nextAppendIndex, charIndex)));
-
-        if (remainingChars > 1 && translation.charAt(charIndex + 2) == '$')
-          charIndex += 2;
-
-        nextAppendIndex = charIndex + 2;
-
-        result.add(with.get(index));
-        ++charIndex;
-      }
-    }
+    if (!template.canApply(with.size()))
+      return createTextComponent(key);
 
-    if (nextAppendIndex <= translation.length() - 1)
-      result.add(createTextComponent(translation.substring(nextAppendIndex)));
+    List<HTMLNode> result = template.apply(with, this::createTextComponent);
 
     if (result.size() == 1)
       return result.getFirst();
 
-    HTMLElement container = createTextComponent("");
+    HTMLNode container = createTextComponent("");
     addChildren(container, result);
     return container;
   }
 
   @Override
-  public void setClickChangePageAction(HTMLElement component, String value) {}
+  public void setClickChangePageAction(HTMLNode component, String value) {}
 
   @Override
-  public void setClickCopyToClipboardAction(HTMLElement component, String value) {}
+  public void setClickCopyToClipboardAction(HTMLNode component, String value) {}
 
   @Override
-  public void setClickOpenFileAction(HTMLElement component, String value) {}
+  public void setClickOpenFileAction(HTMLNode component, String value) {}
 
   @Override
-  public void setClickOpenUrlAction(HTMLElement component, String value) {}
+  public void setClickOpenUrlAction(HTMLNode component, String value) {}
 
   @Override
-  public void setClickRunCommandAction(HTMLElement component, String value) {}
+  public void setClickRunCommandAction(HTMLNode component, String value) {}
 
   @Override
-  public void setClickSuggestCommandAction(HTMLElement component, String value) {}
+  public void setClickSuggestCommandAction(HTMLNode component, String value) {}
 
   @Override
-  public void setHoverItemAction(HTMLElement component, @Nullable String material, @Nullable Integer count, @Nullable HTMLElement name, @Nullable List<HTMLElement> lore, boolean hideProperties) {
+  public void setHoverItemAction(HTMLNode component, @Nullable String material, @Nullable Integer count, @Nullable HTMLNode name, @Nullable List<HTMLNode> lore, boolean hideProperties) {
     if (name == null) {
       if (material == null)
         material = "stone";
@@ -190,12 +156,12 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
     else
       extendDefaultStyles(name, SlotType.ITEM_NAME);
 
-    List<HTMLElement> lines = new ArrayList<>();
+    List<HTMLNode> lines = new ArrayList<>();
 
     lines.add(name);
 
     if (lore != null) {
-      for (HTMLElement loreLine : lore) {
+      for (HTMLNode loreLine : lore) {
         extendDefaultStyles(loreLine, SlotType.ITEM_LORE);
         lines.add(loreLine);
       }
@@ -205,13 +171,13 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
   }
 
   @Override
-  public void setHoverTextAction(HTMLElement component, HTMLElement text) {
+  public void setHoverTextAction(HTMLNode component, HTMLNode text) {
     setHoverTextLines(component, Collections.singletonList(text));
   }
 
   @Override
-  public void setHoverEntityAction(HTMLElement component, String type, UUID id, @Nullable HTMLElement name) {
-    List<HTMLElement> lines = new ArrayList<>();
+  public void setHoverEntityAction(HTMLNode component, String type, UUID id, @Nullable HTMLNode name) {
+    List<HTMLNode> lines = new ArrayList<>();
 
     if (name != null) {
       extendDefaultStyles(name, SlotType.ENTITY_NAME);
@@ -235,121 +201,101 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
   }
 
   @Override
-  public void setInsertAction(HTMLElement component, String value) {}
+  public void setInsertAction(HTMLNode component, String value) {}
 
   @Override
-  public void setColor(HTMLElement component, long packedColor, boolean overwrite) {
-    var style = component.getStyle();
-
-    var color = style.getPropertyValue("color");
-
-    if (color != null && !color.isBlank() && !overwrite)
+  public void setColor(HTMLNode component, long packedColor, boolean overwrite) {
+    if (component.getPackedColor() != PackedColor.NULL_SENTINEL && !overwrite)
       return;
 
-    style.setProperty("color", PackedColor.asNonAlphaHex(packedColor));
+    component.setPackedColor(packedColor);
 
-    setShadowColor(component, PackedColor.setClampedA(packedColor, 60), false);
+    setShadowColor(component, PackedColor.setClampedA(packedColor, ColorClasses.DERIVED_SHADOW_ALPHA), false);
   }
 
   @Override
-  public void setShadowColor(HTMLElement component, long packedColor) {
+  public void setShadowColor(HTMLNode component, long packedColor) {
     setShadowColor(component, packedColor, true);
   }
 
-  private void setShadowColor(HTMLElement component, long packedColor, boolean override) {
-    var style = component.getStyle();
-    var shadowColor = style.getPropertyValue("--shadow-color");
-
-    if (shadowColor != null && !shadowColor.isBlank() && !override)
+  private void setShadowColor(HTMLNode component, long packedColor, boolean override) {
+    if (component.getPackedShadowColor() != PackedColor.NULL_SENTINEL && !override)
       return;
 
-    style.setProperty("--shadow-color", PackedColor.asAlphaHex(packedColor));
+    component.setPackedShadowColor(packedColor);
   }
 
   @Override
-  public void setFont(HTMLElement component, @Nullable String font) {}
+  public void setFont(HTMLNode component, @Nullable String font) {}
 
   @Override
-  public void setObfuscatedFormat(HTMLElement component, TriState value) {
+  public void setObfuscatedFormat(HTMLNode component, TriState value) {
     setTriStateFormat(component, value, Format.OBFUSCATED, true);
   }
 
   @Override
-  public void setBoldFormat(HTMLElement component, TriState value) {
+  public void setBoldFormat(HTMLNode component, TriState value) {
     setTriStateFormat(component, value, Format.BOLD, true);
   }
 
   @Override
-  public void setStrikethroughFormat(HTMLElement component, TriState value) {
+  public void setStrikethroughFormat(HTMLNode component, TriState value) {
     setTriStateFormat(component, value, Format.STRIKETHROUGH, true);
   }
 
   @Override
-  public void setUnderlinedFormat(HTMLElement component, TriState value) {
+  public void setUnderlinedFormat(HTMLNode component, TriState value) {
     setTriStateFormat(component, value, Format.UNDERLINED, true);
   }
 
   @Override
-  public void setItalicFormat(HTMLElement component, TriState value) {
+  public void setItalicFormat(HTMLNode component, TriState value) {
     setTriStateFormat(component, value, Format.ITALIC, true);
   }
 
   @Override
-  public HTMLElement finalizeComponent(HTMLElement component) {
+  public HTMLNode finalizeComponent(HTMLNode component) {
     return component;
   }
 
   @Override
-  public void forEachTextOf(HTMLElement component, Consumer<String> handler) {
-    var elementChildren = component.getChildren();
+  public void forEachTextOf(HTMLNode component, Consumer<String> handler) {
+    List<HTMLNode> children = component.getChildren();
 
-    for (int childIndex = elementChildren.getLength() - 1; childIndex >= 0; --childIndex) {
-      var child = elementChildren.item(childIndex);
+    for (int childIndex = children.size() - 1; childIndex >= 0; --childIndex) {
+      var child = children.get(childIndex);
 
-      if (child.getTagName().equalsIgnoreCase("span"))
+      if (child.isComponent() || child.isTextContainer())
         handler.accept(child.getTextContent());
 
-      if (containsClass(child, COMPONENT_CLASS))
-        forEachTextOf((HTMLElement) child, handler);
+      // Hover-containers have always been descended into, as their class shares the component-class as a prefix
+      if (child.isComponent() || child.isHoverContainer())
+        forEachTextOf(child, handler);
     }
   }
 
   @Override
-  public void addChildren(HTMLElement component, @Nullable List<HTMLElement> children) {
-    var elementChildren = component.getChildren();
+  public void addChildren(HTMLNode component, @Nullable List<HTMLNode> children) {
+    List<HTMLNode> existingChildren = component.getChildren();
 
-    for (int childIndex = elementChildren.getLength() - 1; childIndex >= 0; --childIndex) {
-      var child = elementChildren.item(childIndex);
+    // Plain text-nodes are not elements, and have thus always survived
+    existingChildren.removeIf(child -> child.isElement() && !child.isHoverContainer());
 
-      if (!containsClass(child, HOVER_TEXT_CLASS))
-        component.removeChild(child);
-    }
-
-    if (children != null) {
-      for (HTMLElement child : children)
-        component.appendChild(child);
-    }
+    if (children != null)
+      existingChildren.addAll(children);
   }
 
-  private void setHoverTextLines(HTMLElement component, @Nullable List<HTMLElement> children) {
-    var elementChildren = component.getChildren();
-
-    for (int childIndex = elementChildren.getLength() - 1; childIndex >= 0; --childIndex) {
-      var child = elementChildren.item(childIndex);
-
-      if (containsClass(child, HOVER_TEXT_CLASS))
-        component.removeChild(child);
-    }
+  private void setHoverTextLines(HTMLNode component, @Nullable List<HTMLNode> children) {
+    component.getChildren().removeIf(HTMLNode::isHoverContainer);
 
     if (children != null) {
-      var hoverContainer = dom().createElement("div");
-      addClass(hoverContainer, HOVER_TEXT_CLASS);
+      var hoverContainer = HTMLNode.hoverContainer();
 
-      for (HTMLElement child : children) {
-        addClass(child, LINE_CLASS);
+      for (HTMLNode child : children) {
+        child.setLine(true);
 
-        if (child.getChildren().getLength() == 0)
-          child.appendChild(dom().createTextNode(" "));
+        if (child.getElementChildCount() == 0)
+          child.appendChild(HTMLNode.text(" "));
 
         hoverContainer.appendChild(child);
       }
@@ -358,110 +304,118 @@ public class HTMLComponentConstructor implements ComponentConstructor<HTMLElemen
     }
   }
 
-  private void extendDefaultStyles(HTMLElement element, SlotType type) {
+  private void extendDefaultStyles(HTMLNode component, SlotType type) {
     var defaultStyle = getSlotContext(type).defaultStyle;
 
     if (defaultStyle.getPackedColor() != PackedColor.NULL_SENTINEL)
-      setColor(element, defaultStyle.getPackedColor(), false);
+      setColor(component, defaultStyle.getPackedColor(), false);
 
     if (defaultStyle.packedShadowColor != PackedColor.NULL_SENTINEL)
-      setShadowColor(element, defaultStyle.packedShadowColor, false);
+      setShadowColor(component, defaultStyle.packedShadowColor, false);
 
     for (Format format : Format.VALUES) {
       TriState state = TriStateBitFlags.read(defaultStyle.formats, format.ordinal());
 
       // As of now, there's no need to ever remove formats again, so don't call into the constructor
       if (state != TriState.NULL)
-        setTriStateFormat(element, state, format, false);
+        setTriStateFormat(component, state, format, false);
     }
   }
 
-  public static void removeClass(Element element, String className) {
-    var classAttribute = element.getAttribute("class");
+  private void setTriStateFormat(HTMLNode component, TriState value, Format format, boolean override) {
+    if (!override && component.getFormat(format) != TriState.NULL)
+      return;
 
-    int index;
+    component.setFormat(format, value);
+  }
 
-    if (classAttribute == null || (index = classAttribute.indexOf(className)) < 0)
-      return;
+  static @Nullable String getFormatClass(Format format, boolean value) {
+    switch (format) {
+      case BOLD:
+        return value ? COMPONENT_CLASS + "--bold" : COMPONENT_CLASS + "--non-bold";
 
-    classAttribute = classAttribute.substring(0, index) + classAttribute.substring(index + className.length());
+      case ITALIC:
+        return value ? COMPONENT_CLASS + "--italic" : COMPONENT_CLASS + "--non-italic";
 
-    if (classAttribute.isBlank()) {
-      element.removeAttribute("class");
-      return;
-    }
+      case OBFUSCATED:
+        return value ? COMPONENT_CLASS + "--obfuscated" : COMPONENT_CLASS + "--non-obfuscated";
 
-    element.setAttribute("class", classAttribute);
-  }
+      case UNDERLINED:
+        return value ? COMPONENT_CLASS + "--underlined" : COMPONENT_CLASS + "--non-underlined";
 
-  public static boolean containsClass(Element element, String className) {
-    var classAttribute = element.getAttribute("class");
-    return classAttribute != null && classAttribute.contains(className);
+      case STRIKETHROUGH:
+        return value ? COMPONENT_CLASS + "--strikethrough" : COMPONENT_CLASS + "--non-strikethrough";
+
+      default:
+        GlobalLogger.log(Level.WARNING, "Encountered unknown format: " + format.name());
+        return null;
+    }
   }
 
-  public static void addClass(Element element, String className) {
-    var classAttribute = element.getAttribute("class");
+  public static HTMLElement[] toElements(List<HTMLNode> lines) {
+    double start = Stats.begin();
 
-    if (classAttribute == null || classAttribute.isBlank()) {
-      element.setAttribute("class", className);
-      return;
+    HTMLDocument document = dom();
+    HTMLElement[] result = new HTMLElement[lines.size()];
+
+    for (int index = 0; index < result.length; ++index) {
+      HTMLNode line = lines.get(index);
+      line.setLine(true);
+      result[index] = line.toElement(document);
     }
 
-    if (!classAttribute.contains(className))
-      element.setAttribute("class", classAttribute + " " + className);
+    Stats.end(Stats.Phase.DOM, start);
+    return result;
   }
 
-  private void setTriStateFormat(HTMLElement element, TriState value, Format format, boolean override) {
-    String classTrue;
-    String classFalse;
+  public static HTMLElement toElement(HTMLNode line) {
+    double start = Stats.begin();
 
-    switch (format) {
-      case BOLD:
-        classTrue = COMPONENT_CLASS + "--bold";
-        classFalse = COMPONENT_CLASS + "--non-bold";
-        break;
+    line.setLine(true);
+    HTMLElement result = line.toElement(dom());
 
-      case ITALIC:
-        classTrue = COMPONENT_CLASS + "--italic";
-        classFalse = COMPONENT_CLASS + "--non-italic";
-        break;
+    Stats.end(Stats.Phase.DOM, start);
+    return result;
+  }
 
-      case OBFUSCATED:
-        classTrue = COMPONENT_CLASS + "--obfuscated";
-        classFalse = COMPONENT_CLASS + "--non-obfuscated";
-        break;
+  /**
+   * Patches the previously materialized lines in place to represent the new lines, which take over
+   * their DOM-nodes; returns false if that's not possible, e.g. due to a differing number of lines.
+   */
+  public static boolean patchElements(List<HTMLNode> previousLines, List<HTMLNode> lines) {
+    if (previousLines.size() != lines.size())
+      return false;
 
-      case UNDERLINED:
-        classTrue = COMPONENT_CLASS + "--underlined";
-        classFalse = COMPONENT_CLASS + "--non-underlined";
-        break;
+    double start = Stats.begin();
 
-      case STRIKETHROUGH:
-        classTrue = COMPONENT_CLASS + "--strikethrough";
-        classFalse = COMPONENT_CLASS + "--non-strikethrough";
-        break;
+    try {
+      HTMLDocument document = dom();
 
-      default:
-        GlobalLogger.log(Level.WARNING, "Encountered unknown format: " + format.name());
-        return;
-    }
+      for (int index = 0; index < lines.size(); ++index) {
+        HTMLNode line = lines.get(index);
+        line.setLine(true);
+
+        if (!line.patch(previousLines.get(index), document))
+          return false;
+      }
 
-    if (!override) {
-      if (containsClass(element, classTrue) || containsClass(element, classFalse))
-        return;
+      return true;
+    } finally {
+      Stats.end(Stats.Phase.DOM, start);
     }
+  }
 
-    removeClass(element, classTrue);
-    removeClass(element, classFalse);
+  public static String toHtml(List<HTMLNode> lines) {
+    double start = Stats.begin();
 
-    switch (value) {
-      case TRUE:
-        addClass(element, classTrue);
-        break;
+    StringBuilder result = new StringBuilder();
 
-      case FALSE:
-        addClass(element, classFalse);
-        break;
+    for (HTMLNode line : lines) {
+      line.setLine(true);
+      line.appendHtml(result);
     }
+
+    Stats.end(Stats.Phase.DOM, start);
+    return result.toString();
   }
 }
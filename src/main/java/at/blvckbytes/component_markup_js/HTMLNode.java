@@ -0,0 +1,550 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.markup.ast.node.style.Format;
+import at.blvckbytes.component_markup.util.TriState;
+import at.blvckbytes.component_markup.util.color.PackedColor;
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.dom.xml.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Java-side state of a rendered component, mirroring the element-structure on the DOM one-to-one,
+ * except for hover-containers, which may only be materialized on demand.
+ * All state is kept here while the interpreter is at work, so that the DOM is only ever written to
+ * once, when the finished tree is materialized, and never has to be read back from.
+ */
+public class HTMLNode {
+
+  private static final int KIND_COMPONENT = 0;
+  private static final int KIND_TEXT_CONTAINER = 1;
+  private static final int KIND_TEXT = 2;
+  private static final int KIND_HOVER_CONTAINER = 3;
+
+  // Two bits per format, indexed by ordinal: 1 = TRUE, 2 = FALSE, 0 = NULL
+  private static final int FORMAT_TRUE = 1;
+  private static final int FORMAT_FALSE = 2;
+  private static final int FORMAT_MASK = 3;
+
+  private final int kind;
+
+  private @Nullable String text;
+  private int formats;
+  private boolean line;
+  private long packedColor = PackedColor.NULL_SENTINEL;
+  private long packedShadowColor = PackedColor.NULL_SENTINEL;
+  private @Nullable List<HTMLNode> children;
+
+  // Only available after materialization
+  private @Nullable Node domNode;
+
+  // What a materialized text-node currently shows, if it has been overridden; otherwise, that's its text
+  private @Nullable String displayedText;
+
+  // Resolved once upon materialization, such that patching compares against what has actually been written
+  private @Nullable ColorClasses.Resolution colorResolution;
+
+  // Set on components whose hover-container has been deferred, see DeferredHoverTexts
+  private @Nullable DeferredHoverTexts.Anchor hoverAnchor;
+
+  private HTMLNode(int kind, @Nullable String text) {
+    this.kind = kind;
+    this.text = text;
+  }
+
+  public static HTMLNode component() {
+    return new HTMLNode(KIND_COMPONENT, null);
+  }
+
+  public static HTMLNode textContainer(String text) {
+    HTMLNode result = new HTMLNode(KIND_TEXT_CONTAINER, null);
+    result.appendChild(text(text));
+    return result;
+  }
+
+  public static HTMLNode text(String text) {
+    return new HTMLNode(KIND_TEXT, text);
+  }
+
+  public static HTMLNode hoverContainer() {
+    return new HTMLNode(KIND_HOVER_CONTAINER, null);
+  }
+
+  public boolean isElement() {
+    return kind != KIND_TEXT;
+  }
+
+  public boolean isComponent() {
+    return kind == KIND_COMPONENT;
+  }
+
+  public boolean isTextContainer() {
+    return kind == KIND_TEXT_CONTAINER;
+  }
+
+  public boolean isHoverContainer() {
+    return kind == KIND_HOVER_CONTAINER;
+  }
+
+  public List<HTMLNode> getChildren() {
+    if (children == null)
+      children = new ArrayList<>();
+
+    return children;
+  }
+
+  public @Nullable HTMLNode getHoverContainer() {
+    if (children == null)
+      return null;
+
+    for (int index = children.size() - 1; index >= 0; --index) {
+      HTMLNode child = children.get(index);
+
+      if (child.isHoverContainer())
+        return child;
+    }
+
+    return null;
+  }
+
+  public int getElementChildCount() {
+    if (children == null)
+      return 0;
+
+    int result = 0;
+
+    for (HTMLNode child : children) {
+      if (child.isElement())
+        ++result;
+    }
+
+    return result;
+  }
+
+  public void appendChild(HTMLNode child) {
+    getChildren().add(child);
+  }
+
+  public String getTextContent() {
+    if (kind == KIND_TEXT)
+      return text;
+
+    if (children == null)
+      return "";
+
+    StringBuilder result = new StringBuilder();
+
+    for (HTMLNode child : children)
+      result.append(child.getTextContent());
+
+    return result.toString();
+  }
+
+  public TriState getFormat(Format format) {
+    switch ((formats >> (format.ordinal() * 2)) & FORMAT_MASK) {
+      case FORMAT_TRUE:
+        return TriState.TRUE;
+
+      case FORMAT_FALSE:
+        return TriState.FALSE;
+
+      default:
+        return TriState.NULL;
+    }
+  }
+
+  public void setFormat(Format format, TriState value) {
+    int shift = format.ordinal() * 2;
+
+    formats &= ~(FORMAT_MASK << shift);
+
+    if (value == TriState.TRUE)
+      formats |= FORMAT_TRUE << shift;
+    else if (value == TriState.FALSE)
+      formats |= FORMAT_FALSE << shift;
+  }
+
+  public void setLine(boolean line) {
+    this.line = line;
+  }
+
+  public long getPackedColor() {
+    return packedColor;
+  }
+
+  public void setPackedColor(long packedColor) {
+    this.packedColor = packedColor;
+    this.colorResolution = null;
+  }
+
+  public long getPackedShadowColor() {
+    return packedShadowColor;
+  }
+
+  public void setPackedShadowColor(long packedShadowColor) {
+    this.packedShadowColor = packedShadowColor;
+    this.colorResolution = null;
+  }
+
+  public @Nullable Node getDomNode() {
+    return domNode;
+  }
+
+  /**
+   * Overrides what the materialized text-node shows, without altering the text itself.
+   */
+  public void setDisplayedText(String displayedText) {
+    if (domNode == null)
+      return;
+
+    this.displayedText = displayedText;
+    domNode.setNodeValue(displayedText);
+  }
+
+  /**
+   * Builds the classes of the materialized element, which include the class of its colors, if any.
+   */
+  public @Nullable String buildClassName() {
+    return buildClassName(getColorResolution().className);
+  }
+
+  private @Nullable String buildClassName(@Nullable String colorClass) {
+    StringBuilder result = new StringBuilder();
+
+    if (kind == KIND_COMPONENT)
+      result.append(HTMLComponentConstructor.COMPONENT_CLASS);
+    else if (kind == KIND_HOVER_CONTAINER)
+      result.append(HTMLComponentConstructor.HOVER_TEXT_CLASS);
+
+    if (line)
+      appendClass(result, HTMLComponentConstructor.LINE_CLASS);
+
+    if (formats != 0) {
+      for (Format format : Format.VALUES) {
+        TriState value = getFormat(format);
+
+        if (value == TriState.NULL)
+          continue;
+
+        String formatClass = HTMLComponentConstructor.getFormatClass(format, value == TriState.TRUE);
+
+        if (formatClass != null)
+          appendClass(result, formatClass);
+      }
+    }
+
+    if (colorClass != null)
+      appendClass(result, colorClass);
+
+    return result.length() == 0 ? null : result.toString();
+  }
+
+  // Inline declarations of the materialized element, only carrying colors which lack a class
+  public @Nullable String buildStyle() {
+    return getColorResolution().style;
+  }
+
+  private ColorClasses.Resolution getColorResolution() {
+    if (colorResolution == null)
+      colorResolution = ColorClasses.INSTANCE.resolve(packedColor, packedShadowColor, isSingleCharacter());
+
+    return colorResolution;
+  }
+
+  // Gradients and rainbows emit a component per character, each of which has its very own color
+  private boolean isSingleCharacter() {
+    if (kind != KIND_COMPONENT || children == null)
+      return false;
+
+    StringBuilder text = new StringBuilder();
+
+    for (HTMLNode child : children) {
+      if (child.isComponent())
+        return false;
+
+      if (!child.isHoverContainer())
+        text.append(child.getTextContent());
+    }
+
+    return text.length() != 0 && text.codePointCount(0, text.length()) == 1;
+  }
+
+  /**
+   * Creates the element-tree described by this node, writing each element's attributes exactly once.
+   * May only be called on element-nodes; references to the created nodes are retained.
+   */
+  public HTMLElement toElement(HTMLDocument document) {
+    HTMLElement element = document.createElement(kind == KIND_HOVER_CONTAINER ? "div" : "span");
+
+    Stats.count(Stats.Counter.DOM_NODES_CREATED);
+
+    String className = buildClassName();
+
+    if (className != null)
+      element.setClassName(className);
+
+    String style = buildStyle();
+
+    if (style != null)
+      element.setAttribute("style", style);
+
+    if (children != null) {
+      boolean deferHoverText = DeferredHoverTexts.INSTANCE.isEnabled();
+
+      for (HTMLNode child : children) {
+        if (deferHoverText && child.kind == KIND_HOVER_CONTAINER)
+          continue;
+
+        element.appendChild(child.materialize(document));
+      }
+
+      if (deferHoverText && getHoverContainer() != null)
+        hoverAnchor = DeferredHoverTexts.INSTANCE.attach(this, element);
+    }
+
+    domNode = element;
+    return element;
+  }
+
+  /**
+   * Takes over the DOM-nodes of a previously materialized node at the same structural position,
+   * only writing text, classes and styles which differ, recursively. Returns false if the kinds
+   * of both nodes differ, in which case the caller has to replace the previous node entirely.
+   */
+  public boolean patch(HTMLNode previous, HTMLDocument document) {
+    if (kind != previous.kind || previous.domNode == null)
+      return false;
+
+    domNode = previous.domNode;
+
+    if (kind == KIND_TEXT) {
+      if (!text.equals(previous.displayedText != null ? previous.displayedText : previous.text))
+        domNode.setNodeValue(text);
+
+      return true;
+    }
+
+    HTMLElement element = (HTMLElement) domNode;
+
+    String className = buildClassName();
+
+    if (!Objects.equals(className, previous.buildClassName())) {
+      if (className == null)
+        element.removeAttribute("class");
+      else
+        element.setClassName(className);
+    }
+
+    String style = buildStyle();
+
+    if (!Objects.equals(style, previous.buildStyle())) {
+      if (style == null)
+        element.removeAttribute("style");
+      else
+        element.setAttribute("style", style);
+    }
+
+    // Hover-containers may not have been materialized, and are thus patched separately
+    List<HTMLNode> contentChildren = getContentChildren();
+    List<HTMLNode> previousContentChildren = previous.getContentChildren();
+
+    int childCount = contentChildren.size();
+    int previousChildCount = previousContentChildren.size();
+
+    for (int index = 0; index < Math.min(childCount, previousChildCount); ++index) {
+      HTMLNode child = contentChildren.get(index);
+      HTMLNode previousChild = previousContentChildren.get(index);
+
+      if (!child.patch(previousChild, document))
+        element.replaceChild(child.materialize(document), previousChild.domNode);
+    }
+
+    for (int index = childCount; index < previousChildCount; ++index)
+      element.removeChild(previousContentChildren.get(index).domNode);
+
+    for (int index = previousChildCount; index < childCount; ++index)
+      element.appendChild(contentChildren.get(index).materialize(document));
+
+    patchHoverContainer(previous, element, document);
+    return true;
+  }
+
+  private void patchHoverContainer(HTMLNode previous, HTMLElement element, HTMLDocument document) {
+    HTMLNode hoverContainer = getHoverContainer();
+    HTMLNode previousHoverContainer = previous.getHoverContainer();
+
+    if (previous.hoverAnchor != null) {
+      hoverAnchor = previous.hoverAnchor;
+      hoverAnchor.moveTo(this);
+    }
+
+    if (previousHoverContainer != null && previousHoverContainer.domNode != null) {
+      if (hoverContainer == null)
+        element.removeChild(previousHoverContainer.domNode);
+      else if (!hoverContainer.patch(previousHoverContainer, document))
+        element.replaceChild(hoverContainer.toElement(document), previousHoverContainer.domNode);
+
+      DeferredHoverTexts.INSTANCE.replace(previousHoverContainer, hoverContainer);
+      return;
+    }
+
+    if (hoverContainer == null)
+      return;
+
+    if (!DeferredHoverTexts.INSTANCE.isEnabled())
+      materializeHoverContainer(hoverContainer, document);
+    else if (hoverAnchor == null)
+      hoverAnchor = DeferredHoverTexts.INSTANCE.attach(this, element);
+  }
+
+  /**
+   * Materializes the hover-container of this materialized component at its original index, i.e. in front of the
+   * first child following it which has been materialized, as if it had been materialized along with the component.
+   */
+  public void materializeHoverContainer(HTMLNode container, HTMLDocument document) {
+    HTMLElement element = (HTMLElement) domNode;
+    HTMLElement containerElement = container.toElement(document);
+
+    for (int index = children.indexOf(container) + 1; index < children.size(); ++index) {
+      Node sibling = children.get(index).domNode;
+
+      if (sibling != null) {
+        element.insertBefore(containerElement, sibling);
+        return;
+      }
+    }
+
+    element.appendChild(containerElement);
+  }
+
+  private List<HTMLNode> getContentChildren() {
+    if (children == null)
+      return List.of();
+
+    if (getHoverContainer() == null)
+      return children;
+
+    List<HTMLNode> result = new ArrayList<>(children.size());
+
+    for (HTMLNode child : children) {
+      if (!child.isHoverContainer())
+        result.add(child);
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the materialized node from the DOM and forgets about all nodes created for it,
+   * such that it's materialized from scratch when needed again.
+   */
+  public void detach() {
+    if (domNode == null)
+      return;
+
+    Node parent = domNode.getParentNode();
+
+    if (parent != null)
+      parent.removeChild(domNode);
+
+    forgetDomNodes();
+  }
+
+  private void forgetDomNodes() {
+    domNode = null;
+    displayedText = null;
+    hoverAnchor = null;
+
+    if (children != null) {
+      for (HTMLNode child : children)
+        child.forgetDomNodes();
+    }
+  }
+
+  private Node materialize(HTMLDocument document) {
+    if (kind == KIND_TEXT) {
+      Stats.count(Stats.Counter.DOM_NODES_CREATED);
+      return domNode = document.createTextNode(text);
+    }
+
+    return toElement(document);
+  }
+
+  public String toHtml() {
+    StringBuilder result = new StringBuilder();
+    appendHtml(result);
+    return result.toString();
+  }
+
+  public void appendHtml(StringBuilder output) {
+    if (kind == KIND_TEXT) {
+      appendEscaped(output, text);
+      return;
+    }
+
+    String tagName = kind == KIND_HOVER_CONTAINER ? "div" : "span";
+
+    output.append('<').append(tagName);
+
+    // Serialized output may be applied where the managed stylesheet is unreachable, e.g. when posted by a worker
+    String className = buildClassName(null);
+
+    if (className != null) {
+      output.append(" class=\"");
+      appendEscaped(output, className);
+      output.append('"');
+    }
+
+    String style = ColorClasses.makeInlineStyle(packedColor, packedShadowColor);
+
+    if (style != null)
+      output.append(" style=\"").append(style).append('"');
+
+    output.append('>');
+
+    if (children != null) {
+      for (HTMLNode child : children)
+        child.appendHtml(output);
+    }
+
+    output.append("</").append(tagName).append('>');
+  }
+
+  private static void appendClass(StringBuilder output, String className) {
+    if (output.length() != 0)
+      output.append(' ');
+
+    output.append(className);
+  }
+
+  private static void appendEscaped(StringBuilder output, String value) {
+    for (int index = 0; index < value.length(); ++index) {
+      char c = value.charAt(index);
+
+      switch (c) {
+        case '&':
+          output.append("&amp;");
+          break;
+
+        case '<':
+          output.append("&lt;");
+          break;
+
+        case '>':
+          output.append("&gt;");
+          break;
+
+        case '"':
+          output.append("&quot;");
+          break;
+
+        default:
+          output.append(c);
+      }
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.JSProperty;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.typedarrays.Int32Array;
+
+public interface JSBatchRenderResult extends JSObject {
+
+  // Tokens of all items, packed as by TokenSequence#toInt32Array, one item after another
+  @JSProperty
+  Int32Array getTokens();
+
+  // Values of the tokens of item i reside within [tokenOffsets[i], tokenOffsets[i + 1]) of tokens
+  @JSProperty
+  Int32Array getTokenOffsets();
+
+  @JSProperty
+  String[] getTokenTypeNames();
+
+  @JSProperty
+  String[] getErrorMessages();
+
+  @JSProperty
+  Int32Array getErrorCharIndices();
+
+  // Per item, null if it wasn't interpreted; only present if HTML-string output is disabled
+  @JSProperty
+  @Nullable JSArray<JSArray<HTMLElement>> getComponents();
+
+  // Per item, null if it wasn't interpreted; only present if HTML-string output is enabled
+  @JSProperty
+  @Nullable String[] getHtml();
+
+}
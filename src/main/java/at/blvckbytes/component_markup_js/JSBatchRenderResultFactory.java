@@ -0,0 +1,26 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.typedarrays.Int32Array;
+
+public class JSBatchRenderResultFactory {
+
+  @JSBody(
+    params = { "tokens", "tokenOffsets", "tokenTypeNames", "errorMessages", "errorCharIndices", "components", "html" },
+    script = (
+      "return {tokens: tokens, tokenOffsets: tokenOffsets, tokenTypeNames: tokenTypeNames, errorMessages: errorMessages,"
+        + " errorCharIndices: errorCharIndices, components: components, html: html};"
+    )
+  )
+  public static native JSBatchRenderResult create(
+    Int32Array tokens,
+    Int32Array tokenOffsets,
+    String[] tokenTypeNames,
+    String[] errorMessages,
+    Int32Array errorCharIndices,
+    JSArray<JSArray<HTMLElement>> components,
+    String[] html
+  );
+}
@@ -0,0 +1,11 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.JSProperty;
+
+public interface JSCompileResult extends JSParseError {
+
+  // Negative if compilation failed, in which case the error-properties are set
+  @JSProperty
+  int getHandle();
+
+}
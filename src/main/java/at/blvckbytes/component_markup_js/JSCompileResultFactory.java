@@ -0,0 +1,12 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.JSBody;
+
+public class JSCompileResultFactory {
+
+  @JSBody(
+    params = { "handle", "errorMessage", "errorCharIndex" },
+    script = "return {handle: handle, errorMessage: errorMessage, errorCharIndex: errorCharIndex};"
+  )
+  public static native JSCompileResult create(int handle, String errorMessage, int errorCharIndex);
+}
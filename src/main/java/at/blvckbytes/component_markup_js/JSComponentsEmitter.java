@@ -10,4 +10,18 @@ public class JSComponentsEmitter {
     script = "window.onEmitComponents(components);"
   )
   public static native void onEmitComponents(HTMLElement[] components);
+
+  // All lines, serialized into one string, meant to be inserted by a single innerHTML-write
+  @JSBody(
+    params = { "html" },
+    script = "window.onEmitComponentsHtml(html);"
+  )
+  public static native void onEmitComponentsHtml(String html);
+
+  // Further lines of a sliced render, to be appended to the components emitted last
+  @JSBody(
+    params = { "components" },
+    script = "window.onAppendComponents(components);"
+  )
+  public static native void onAppendComponents(HTMLElement[] components);
 }
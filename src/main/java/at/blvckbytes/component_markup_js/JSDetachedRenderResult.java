@@ -0,0 +1,20 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.JSProperty;
+import org.teavm.jso.typedarrays.Int32Array;
+
+public interface JSDetachedRenderResult extends JSParseError {
+
+  // Packed as by TokenSequence#toInt32Array; null if parsing failed
+  @JSProperty
+  @Nullable Int32Array getTokens();
+
+  @JSProperty
+  String[] getTokenTypeNames();
+
+  // All lines, serialized; null if not interpreted or if parsing failed
+  @JSProperty
+  @Nullable String getHtml();
+
+}
@@ -0,0 +1,13 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.typedarrays.Int32Array;
+
+public class JSDetachedRenderResultFactory {
+
+  @JSBody(
+    params = { "errorMessage", "errorCharIndex", "tokens", "tokenTypeNames", "html" },
+    script = "return {errorMessage: errorMessage, errorCharIndex: errorCharIndex, tokens: tokens, tokenTypeNames: tokenTypeNames, html: html};"
+  )
+  public static native JSDetachedRenderResult create(String errorMessage, int errorCharIndex, Int32Array tokens, String[] tokenTypeNames, String html);
+}
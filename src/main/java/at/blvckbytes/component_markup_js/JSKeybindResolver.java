@@ -7,7 +7,15 @@ public class JSKeybindResolver {
 
   @JSBody(
     params = { "key" },
-    script = "return window.tryResolveKeybind(key);"
+    script = "return globalThis.tryResolveKeybind(key);"
   )
   public static native @Nullable String tryResolveKeybind(String key);
+
+  public static @Nullable String resolve(String key) {
+    if (LookupTable.KEYBINDS.isLoaded())
+      return LookupTable.KEYBINDS.get(key);
+
+    Stats.count(Stats.Counter.KEYBIND_CALLS);
+    return tryResolveKeybind(key);
+  }
 }
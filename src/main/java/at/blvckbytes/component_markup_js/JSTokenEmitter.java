@@ -1,6 +1,8 @@
 package at.blvckbytes.component_markup_js;
 
+import org.jetbrains.annotations.Nullable;
 import org.teavm.jso.JSBody;
+import org.teavm.jso.typedarrays.Int32Array;
 
 public class JSTokenEmitter {
 
@@ -10,4 +12,25 @@ public class JSTokenEmitter {
   )
   public static native void onEmitToken(String type, int beginIndexInclusive, int endIndexExclusive, String value);
 
+  // Type-names are only passed if they changed since the last call, values only if requested
+  @JSBody(
+    params = { "entries", "values", "typeNames" },
+    script = "window.onEmitTokens(entries, values, typeNames);"
+  )
+  public static native void onEmitTokens(Int32Array entries, @Nullable String[] values, @Nullable String[] typeNames);
+
+  // Replaces removedCount tokens at fromIndex by the tokens emitted next; all following tokens move by offsetDelta
+  @JSBody(
+    params = { "fromIndex", "removedCount", "offsetDelta" },
+    script = "window.onPatchTokens(fromIndex, removedCount, offsetDelta);"
+  )
+  public static native void onPatchTokens(int fromIndex, int removedCount, int offsetDelta);
+
+  // Chunk-wise counterpart of onEmitTokens; a chunkIndex of zero starts a new tokenization, which ends with the last chunk
+  @JSBody(
+    params = { "entries", "values", "typeNames", "chunkIndex", "last" },
+    script = "window.onEmitTokenChunk(entries, values, typeNames, chunkIndex, last);"
+  )
+  public static native void onEmitTokenChunk(Int32Array entries, @Nullable String[] values, @Nullable String[] typeNames, int chunkIndex, boolean last);
+
 }
@@ -7,7 +7,15 @@ public class JSTranslationResolver {
 
   @JSBody(
     params = { "key" },
-    script = "return window.tryResolveTranslationKey(key);"
+    script = "return globalThis.tryResolveTranslationKey(key);"
   )
   public static native @Nullable String tryResolveTranslationKey(String key);
+
+  public static @Nullable String resolve(String key) {
+    if (LookupTable.TRANSLATIONS.isLoaded())
+      return LookupTable.TRANSLATIONS.get(key);
+
+    Stats.count(Stats.Counter.TRANSLATION_CALLS);
+    return tryResolveTranslationKey(key);
+  }
 }
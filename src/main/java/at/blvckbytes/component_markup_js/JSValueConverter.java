@@ -0,0 +1,136 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.core.JSObjects;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JSValueConverter {
+
+  @JSBody(
+    params = { "object", "key" },
+    script = "return object[key];"
+  )
+  private static native JSObject getProperty(JSObject object, String key);
+
+  @JSBody(
+    params = { "array", "index" },
+    script = "return array[index];"
+  )
+  private static native JSObject getItem(JSObject array, int index);
+
+  @JSBody(
+    params = { "array" },
+    script = "return array.length;"
+  )
+  private static native int getLength(JSObject array);
+
+  @JSBody(
+    params = { "value" },
+    script = "return value === null || value === undefined;"
+  )
+  private static native boolean isNullish(JSObject value);
+
+  @JSBody(
+    params = { "value" },
+    script = "return Array.isArray(value);"
+  )
+  private static native boolean isArray(JSObject value);
+
+  @JSBody(
+    params = { "value" },
+    script = "return value;"
+  )
+  private static native double asNumber(JSObject value);
+
+  @JSBody(
+    params = { "value" },
+    script = "return value;"
+  )
+  private static native boolean asBoolean(JSObject value);
+
+  @JSBody(
+    params = { "value" },
+    script = "return String(value);"
+  )
+  private static native String asString(JSObject value);
+
+  @JSBody(
+    params = { "json" },
+    script = "return JSON.parse(json);"
+  )
+  public static native JSObject parseJson(String json);
+
+  /**
+   * Converts the own enumerable properties of a plain JS object into a map, stringifying all values.
+   */
+  public static Map<String, String> toStringMap(JSObject object) {
+    String[] keys = JSObjects.keys(object);
+    Map<String, String> result = new HashMap<>(keys.length * 2);
+
+    for (String key : keys)
+      result.put(key, asString(getProperty(object, key)));
+
+    return result;
+  }
+
+  /**
+   * Converts the own enumerable properties of a plain JS object into variables for the interpreter;
+   * numbers become longs if integral and doubles otherwise, arrays become lists and objects become maps.
+   */
+  public static Map<String, Object> toVariables(@Nullable JSObject object) {
+    Map<String, Object> result = new HashMap<>();
+
+    if (object == null || isNullish(object))
+      return result;
+
+    for (String key : JSObjects.keys(object))
+      result.put(key, toJava(getProperty(object, key)));
+
+    return result;
+  }
+
+  public static @Nullable Object toJava(@Nullable JSObject value) {
+    if (value == null || isNullish(value))
+      return null;
+
+    switch (JSObjects.typeOf(value)) {
+      case "string":
+        return asString(value);
+
+      case "boolean":
+        return asBoolean(value);
+
+      case "number": {
+        double number = asNumber(value);
+
+        if (number == Math.rint(number) && Math.abs(number) <= Long.MAX_VALUE)
+          return (long) number;
+
+        return number;
+      }
+
+      case "object": {
+        if (isArray(value)) {
+          int length = getLength(value);
+          List<Object> items = new ArrayList<>(length);
+
+          for (int index = 0; index < length; ++index)
+            items.add(toJava(getItem(value, index)));
+
+          return items;
+        }
+
+        return toVariables(value);
+      }
+
+      default:
+        return asString(value);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import at.blvckbytes.component_markup.expression.interpreter.*;
 import at.blvckbytes.component_markup.util.TriState;
 import org.jetbrains.annotations.Nullable;
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
 
 import java.util.EnumSet;
 
@@ -11,6 +12,17 @@ public class JsInterpretationPlatform implements InterpretationPlatform {
 
   public static final JsInterpretationPlatform INSTANCE = new JsInterpretationPlatform();
 
+  // Invalid patterns are remembered as null, so that they're not attempted to be compiled over and over again
+  private final LruCache<String, JSObject> regexCache = new LruCache<>(128);
+
+  private @Nullable JSObject wordSegmenter;
+
+  // Arguments which the formatters rejected before, such that they're substituted by their fallback right away,
+  // instead of having the formatter throw and the call being retried for every single value over and over again
+  private final LruCache<String, Boolean> invalidLocales = new LruCache<>(32);
+  private final LruCache<String, Boolean> invalidTimeZones = new LruCache<>(32);
+  private final LruCache<String, Boolean> invalidRoundingModes = new LruCache<>(32);
+
   private JsInterpretationPlatform() {}
 
   @JSBody(
@@ -20,25 +32,42 @@ public class JsInterpretationPlatform implements InterpretationPlatform {
   public static native String[] plainTextSplit(String input, String delimiter);
 
   @JSBody(
-    params = { "input", "pattern" },
-    script = "return input.split(new RegExp(pattern));"
+    params = { "pattern" },
+    script = "try { return new RegExp(pattern); } catch (e) { return null; }"
+  )
+  private static native @Nullable JSObject compileRegex(String pattern);
+
+  @JSBody(
+    params = { "input", "regex" },
+    script = "return input.split(regex);"
   )
-  public static native String[] regexSplit(String input, String pattern);
+  public static native String[] regexSplit(String input, JSObject regex);
 
   @JSBody(
-    params = { "input", "pattern" },
-    script = "return new RegExp(pattern).test(input);"
+    params = { "input", "regex" },
+    script = "return regex.test(input);"
   )
-  public static native boolean regexTest(String input, String pattern);
+  public static native boolean regexTest(String input, JSObject regex);
+
+  private static @Nullable JSObject compileCountedRegex(String pattern) {
+    Stats.count(Stats.Counter.REGEX_CALLS);
+    return compileRegex(pattern);
+  }
+
+  public LruCache<String, JSObject> getRegexCache() {
+    return regexCache;
+  }
 
   @Override
   public String[] split(String input, String delimiter, boolean regex) {
     if (regex) {
-      try {
-        return regexSplit(input, delimiter);
-      } catch (Throwable e) {
+      JSObject compiledRegex = regexCache.computeIfAbsent(delimiter, JsInterpretationPlatform::compileCountedRegex);
+
+      if (compiledRegex == null)
         return null;
-      }
+
+      Stats.count(Stats.Counter.REGEX_CALLS);
+      return regexSplit(input, compiledRegex);
     }
 
     return plainTextSplit(input, delimiter);
@@ -46,13 +75,15 @@ public class JsInterpretationPlatform implements InterpretationPlatform {
 
   @Override
   public TriState matchesPattern(String input, String pattern) {
-    try {
-      return regexTest(input, pattern)
-        ? TriState.TRUE
-        : TriState.FALSE;
-    } catch (Throwable e) {
+    JSObject compiledRegex = regexCache.computeIfAbsent(pattern, JsInterpretationPlatform::compileCountedRegex);
+
+    if (compiledRegex == null)
       return TriState.NULL;
-    }
+
+    Stats.count(Stats.Counter.REGEX_CALLS);
+    return regexTest(input, compiledRegex)
+      ? TriState.TRUE
+      : TriState.FALSE;
   }
 
   @JSBody(
@@ -82,11 +113,13 @@ public class JsInterpretationPlatform implements InterpretationPlatform {
     return jsSlugify(input);
   }
 
+  @JSBody(script = "return new Intl.Segmenter('und', { granularity: 'word' });")
+  private static native JSObject createWordSegmenter();
+
   @JSBody(
-    params = { "input" },
+    params = { "input", "segmenter" },
     script = (
     "if (!input) return input;"
-      + "const segmenter = new Intl.Segmenter('und', { granularity: 'word' });"
       + "let result = '';"
       + "for (const { segment, isWordLike } of segmenter.segment(input)) {"
       + "  if (isWordLike) {"
@@ -101,70 +134,101 @@ public class JsInterpretationPlatform implements InterpretationPlatform {
       + "return result;"
     )
   )
-  public static native String jsToTitleCase(String input);
+  public static native String jsToTitleCase(String input, JSObject segmenter);
 
   @Override
   public String toTitleCase(String input) {
-    return jsToTitleCase(input);
+    if (wordSegmenter == null)
+      wordSegmenter = createWordSegmenter();
+
+    return jsToTitleCase(input, wordSegmenter);
   }
 
   @Override
   public String formatDate(String format, @Nullable String locale, @Nullable String timeZone, long timestamp, EnumSet<FormatDateWarning> encounteredWarnings) {
-    if (encounteredWarnings.contains(FormatDateWarning.INVALID_LOCALE))
-      locale = null;
-
-    if (encounteredWarnings.contains(FormatDateWarning.INVALID_TIMEZONE))
-      timeZone = null;
-
-    try {
-      return ApproximatedDateFormatter.format(format, locale, timeZone, timestamp);
-    } catch (Throwable e) {
-      if (e.getMessage().contains("invalid language")) {
-        if (!encounteredWarnings.add(FormatDateWarning.INVALID_LOCALE))
-          return "?";
+    while (true) {
+      if (locale != null && (encounteredWarnings.contains(FormatDateWarning.INVALID_LOCALE) || isKnownInvalid(invalidLocales, locale))) {
+        encounteredWarnings.add(FormatDateWarning.INVALID_LOCALE);
+        locale = null;
       }
 
-      else if (e.getMessage().contains("invalid time zone")) {
-        if (!encounteredWarnings.add(FormatDateWarning.INVALID_TIMEZONE))
-          return "?";
+      if (timeZone != null && (encounteredWarnings.contains(FormatDateWarning.INVALID_TIMEZONE) || isKnownInvalid(invalidTimeZones, timeZone))) {
+        encounteredWarnings.add(FormatDateWarning.INVALID_TIMEZONE);
+        timeZone = null;
       }
 
-      else {
-        System.err.println(e.getMessage());
+      Stats.count(Stats.Counter.FORMATTER_CALLS);
+
+      try {
+        return ApproximatedDateFormatter.format(format, locale, timeZone, timestamp);
+      } catch (Throwable e) {
+        String message = String.valueOf(e.getMessage());
+
+        if (message.contains("invalid language")) {
+          if (locale == null)
+            return "?";
+
+          invalidLocales.put(locale, true);
+          continue;
+        }
+
+        if (message.contains("invalid time zone")) {
+          if (timeZone == null)
+            return "?";
+
+          invalidTimeZones.put(timeZone, true);
+          continue;
+        }
+
+        System.err.println(message);
         return "?";
       }
-
-      return formatDate(format, locale, timeZone, timestamp, encounteredWarnings);
     }
   }
 
   @Override
   public String formatNumber(String format, @Nullable String roundingMode, @Nullable String locale, Number number, EnumSet<FormatNumberWarning> encounteredWarnings) {
-    if (encounteredWarnings.contains(FormatNumberWarning.INVALID_LOCALE))
-      locale = null;
-
-    if (encounteredWarnings.contains(FormatNumberWarning.INVALID_ROUNDING_MODE))
-      roundingMode = null;
-
-    try {
-      return ApproximatedNumberFormatter.format(format, roundingMode, locale, number.doubleValue());
-    } catch (Throwable e) {
-      if (e.getMessage().contains("invalid language")) {
-        if (!encounteredWarnings.add(FormatNumberWarning.INVALID_LOCALE))
-          return "?";
+    while (true) {
+      if (locale != null && (encounteredWarnings.contains(FormatNumberWarning.INVALID_LOCALE) || isKnownInvalid(invalidLocales, locale))) {
+        encounteredWarnings.add(FormatNumberWarning.INVALID_LOCALE);
+        locale = null;
       }
 
-      else if (e.getMessage().contains("invalid rounding")) {
-        if (!encounteredWarnings.add(FormatNumberWarning.INVALID_ROUNDING_MODE))
-          return "?";
+      if (roundingMode != null && (encounteredWarnings.contains(FormatNumberWarning.INVALID_ROUNDING_MODE) || isKnownInvalid(invalidRoundingModes, roundingMode))) {
+        encounteredWarnings.add(FormatNumberWarning.INVALID_ROUNDING_MODE);
+        roundingMode = null;
       }
 
-      else {
-        System.err.println(e.getMessage());
+      Stats.count(Stats.Counter.FORMATTER_CALLS);
+
+      try {
+        return ApproximatedNumberFormatter.format(format, roundingMode, locale, number.doubleValue());
+      } catch (Throwable e) {
+        String message = String.valueOf(e.getMessage());
+
+        if (message.contains("invalid language")) {
+          if (locale == null)
+            return "?";
+
+          invalidLocales.put(locale, true);
+          continue;
+        }
+
+        if (message.contains("invalid rounding")) {
+          if (roundingMode == null)
+            return "?";
+
+          invalidRoundingModes.put(roundingMode, true);
+          continue;
+        }
+
+        System.err.println(message);
         return "?";
       }
-
-      return formatNumber(format, roundingMode, locale, number, encounteredWarnings);
     }
   }
+
+  private static boolean isKnownInvalid(LruCache<String, Boolean> invalidValues, String value) {
+    return invalidValues.get(value) != null;
+  }
 }
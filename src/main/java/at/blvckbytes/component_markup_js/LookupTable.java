@@ -0,0 +1,57 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translations or keybinds loaded from JS at once; once a table has been loaded, lookups no longer cross over into JS at all.
+ */
+public class LookupTable {
+
+  public static final LookupTable TRANSLATIONS = new LookupTable();
+  public static final LookupTable KEYBINDS = new LookupTable();
+
+  private @Nullable Map<String, String> entries;
+  private int version = -1;
+
+  private LookupTable() {}
+
+  /**
+   * Replaces all entries at once, such that a whole language can be swapped atomically.
+   */
+  public void load(Map<String, String> entries, int version) {
+    this.entries = entries;
+    this.version = version;
+  }
+
+  public void load(String[] keys, String[] values, int version) {
+    if (keys.length != values.length)
+      throw new IllegalArgumentException("Got " + keys.length + " keys but " + values.length + " values");
+
+    Map<String, String> entries = new HashMap<>(keys.length * 2);
+
+    for (int index = 0; index < keys.length; ++index)
+      entries.put(keys[index], values[index]);
+
+    load(entries, version);
+  }
+
+  public void unload() {
+    this.entries = null;
+    this.version = -1;
+  }
+
+  public boolean isLoaded() {
+    return entries != null;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public @Nullable String get(String key) {
+    return entries == null ? null : entries.get(key);
+  }
+}
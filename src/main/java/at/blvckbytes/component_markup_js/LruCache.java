@@ -0,0 +1,99 @@
+package at.blvckbytes.component_markup_js;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class LruCache<K, V> {
+
+  private final LinkedHashMap<K, V> entries;
+  private int capacity;
+
+  private int hits;
+  private int misses;
+
+  public LruCache(int capacity) {
+    this.capacity = capacity;
+
+    // Access-order, so that the eldest entry is always the least recently used one
+    this.entries = new LinkedHashMap<>(16, .75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > LruCache.this.capacity;
+      }
+    };
+  }
+
+  public @Nullable V get(K key) {
+    V value = entries.get(key);
+
+    if (value != null || entries.containsKey(key))
+      ++hits;
+    else
+      ++misses;
+
+    return value;
+  }
+
+  /**
+   * Keys which are mapped to null count as hits as well, which allows to remember negative results.
+   */
+  public @Nullable V computeIfAbsent(K key, Function<K, @Nullable V> factory) {
+    V value = entries.get(key);
+
+    if (value != null || entries.containsKey(key)) {
+      ++hits;
+      return value;
+    }
+
+    ++misses;
+
+    value = factory.apply(key);
+    put(key, value);
+
+    return value;
+  }
+
+  public void put(K key, @Nullable V value) {
+    if (capacity > 0)
+      entries.put(key, value);
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = Math.max(0, capacity);
+
+    var iterator = entries.entrySet().iterator();
+
+    while (entries.size() > this.capacity && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+  }
+}
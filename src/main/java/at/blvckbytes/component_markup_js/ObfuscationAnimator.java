@@ -0,0 +1,200 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.markup.ast.node.style.Format;
+import at.blvckbytes.component_markup.util.TriState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Keeps track of the text-nodes of the lines emitted last per template which are rendered as obfuscated, such that
+ * animating them only rewrites their contents, instead of re-rendering the whole template each frame.
+ * As done by the game, every character is substituted by a random one of the same width, which keeps
+ * the layout stable; widths approximate those of the default font.
+ */
+public class ObfuscationAnimator {
+
+  public static final ObfuscationAnimator INSTANCE = new ObfuscationAnimator();
+
+  // Owner of lines which are emitted without a compiled template, e.g. by tokenizing with interpretation
+  public static final int NO_TEMPLATE = 0;
+
+  // Whitespace keeps its place, as substituting it would make words jump around
+  private static final byte KEEP_CHARACTER = -1;
+
+  private static final char[][] GLYPH_POOLS;
+  private static final byte[] ASCII_WIDTH_CLASSES = new byte[128];
+  private static final byte DEFAULT_WIDTH_CLASS;
+
+  static {
+    String[] narrowPools = { "!',.:;i|", "`l", "\"I[]t", "()*<>fk{}", "@~" };
+
+    StringBuilder defaultPool = new StringBuilder();
+
+    for (char c = '!'; c <= '~'; ++c) {
+      boolean isNarrow = false;
+
+      for (String pool : narrowPools) {
+        if (pool.indexOf(c) >= 0) {
+          isNarrow = true;
+          break;
+        }
+      }
+
+      if (!isNarrow)
+        defaultPool.append(c);
+    }
+
+    GLYPH_POOLS = new char[narrowPools.length + 1][];
+
+    for (int poolIndex = 0; poolIndex < narrowPools.length; ++poolIndex)
+      GLYPH_POOLS[poolIndex] = narrowPools[poolIndex].toCharArray();
+
+    DEFAULT_WIDTH_CLASS = (byte) narrowPools.length;
+    GLYPH_POOLS[DEFAULT_WIDTH_CLASS] = defaultPool.toString().toCharArray();
+
+    for (int c = 0; c < ASCII_WIDTH_CLASSES.length; ++c)
+      ASCII_WIDTH_CLASSES[c] = DEFAULT_WIDTH_CLASS;
+
+    for (byte poolIndex = 0; poolIndex < narrowPools.length; ++poolIndex) {
+      for (char c : GLYPH_POOLS[poolIndex])
+        ASCII_WIDTH_CLASSES[c] = poolIndex;
+    }
+  }
+
+  private final Random random = new Random();
+
+  private static class TrackedLines {
+    final List<HTMLNode> textNodes = new ArrayList<>();
+    final List<byte[]> widthClasses = new ArrayList<>();
+  }
+
+  // By the handle of the template which emitted them, or by NO_TEMPLATE
+  private final Map<Integer, TrackedLines> trackedByOwner = new HashMap<>();
+
+  private boolean enabled;
+
+  private ObfuscationAnimator() {}
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+
+    if (!enabled)
+      clear();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Replaces the text-nodes tracked for the given owner by those of the passed lines; they may be materialized
+   * later on, as nodes without a DOM-counterpart are simply skipped when animating.
+   */
+  public void track(int owner, List<HTMLNode> lines) {
+    trackedByOwner.remove(owner);
+
+    if (!enabled)
+      return;
+
+    TrackedLines tracked = new TrackedLines();
+
+    for (HTMLNode line : lines)
+      collect(line, false, tracked);
+
+    if (!tracked.textNodes.isEmpty())
+      trackedByOwner.put(owner, tracked);
+  }
+
+  public void clear(int owner) {
+    trackedByOwner.remove(owner);
+  }
+
+  public void clear() {
+    trackedByOwner.clear();
+  }
+
+  /**
+   * Rewrites the contents of all tracked text-nodes; returns how many nodes were
+   * rewritten, which allows the caller to stop requesting frames once there are none.
+   */
+  public int animate() {
+    int rewrittenCount = 0;
+
+    for (TrackedLines tracked : trackedByOwner.values()) {
+      for (int index = 0; index < tracked.textNodes.size(); ++index) {
+        HTMLNode textNode = tracked.textNodes.get(index);
+
+        if (textNode.getDomNode() == null)
+          continue;
+
+        textNode.setDisplayedText(makeFrame(textNode.getTextContent(), tracked.widthClasses.get(index)));
+        ++rewrittenCount;
+      }
+    }
+
+    return rewrittenCount;
+  }
+
+  private String makeFrame(String text, byte[] widthClasses) {
+    char[] result = new char[widthClasses.length];
+
+    for (int index = 0; index < result.length; ++index) {
+      byte widthClass = widthClasses[index];
+
+      if (widthClass == KEEP_CHARACTER) {
+        result[index] = text.charAt(index);
+        continue;
+      }
+
+      char[] pool = GLYPH_POOLS[widthClass];
+      result[index] = pool[random.nextInt(pool.length)];
+    }
+
+    return new String(result);
+  }
+
+  private void collect(HTMLNode node, boolean obfuscated, TrackedLines tracked) {
+    if (!node.isElement()) {
+      if (!obfuscated)
+        return;
+
+      String text = node.getTextContent();
+
+      if (text.isEmpty())
+        return;
+
+      tracked.textNodes.add(node);
+      tracked.widthClasses.add(makeWidthClasses(text));
+      return;
+    }
+
+    TriState state = node.getFormat(Format.OBFUSCATED);
+
+    if (state != TriState.NULL)
+      obfuscated = state == TriState.TRUE;
+
+    for (HTMLNode child : node.getChildren())
+      collect(child, obfuscated, tracked);
+  }
+
+  private static byte[] makeWidthClasses(String text) {
+    byte[] result = new byte[text.length()];
+
+    for (int index = 0; index < result.length; ++index) {
+      char c = text.charAt(index);
+
+      if (Character.isWhitespace(c))
+        result[index] = KEEP_CHARACTER;
+      else if (c < ASCII_WIDTH_CLASSES.length)
+        result[index] = ASCII_WIDTH_CLASSES[c];
+      else
+        result[index] = DEFAULT_WIDTH_CLASS;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,58 @@
+package at.blvckbytes.component_markup_js;
+
+import java.util.Objects;
+
+public class ParseCache {
+
+  public static final ParseCache INSTANCE = new ParseCache(64);
+
+  private final LruCache<Key, ParseResult> results;
+
+  private ParseCache(int capacity) {
+    this.results = new LruCache<>(capacity);
+  }
+
+  /**
+   * Results are immutable, so repeated renders of an unchanged input (e.g. animation-frames which
+   * only bump render_count) can share both the AST and the tokens of the first parse.
+   */
+  public ParseResult parse(String input, boolean lenient, boolean expression) {
+    return results.computeIfAbsent(new Key(input, lenient, expression), key -> ParseResult.parse(input, lenient, expression));
+  }
+
+  public LruCache<?, ?> getResults() {
+    return results;
+  }
+
+  private static class Key {
+
+    private final String input;
+    private final boolean lenient;
+    private final boolean expression;
+    private final int hashCode;
+
+    private Key(String input, boolean lenient, boolean expression) {
+      this.input = input;
+      this.lenient = lenient;
+      this.expression = expression;
+      this.hashCode = Objects.hash(input, lenient, expression);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key))
+        return false;
+
+      Key otherKey = (Key) other;
+
+      return lenient == otherKey.lenient
+        && expression == otherKey.expression
+        && input.equals(otherKey.input);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
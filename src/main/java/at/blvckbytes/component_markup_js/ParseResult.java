@@ -0,0 +1,103 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.expression.parser.ExpressionParseException;
+import at.blvckbytes.component_markup.expression.parser.ExpressionParser;
+import at.blvckbytes.component_markup.markup.ast.node.MarkupNode;
+import at.blvckbytes.component_markup.markup.ast.tag.built_in.BuiltInTagRegistry;
+import at.blvckbytes.component_markup.markup.parser.MarkupParseException;
+import at.blvckbytes.component_markup.markup.parser.MarkupParser;
+import at.blvckbytes.component_markup.markup.parser.token.HierarchicalToken;
+import at.blvckbytes.component_markup.markup.parser.token.OutputFlag;
+import at.blvckbytes.component_markup.markup.parser.token.TokenOutput;
+import at.blvckbytes.component_markup.util.InputView;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.List;
+
+public class ParseResult {
+
+  private static final EnumSet<OutputFlag> NO_FLAGS = EnumSet.noneOf(OutputFlag.class);
+
+  private static final EnumSet<OutputFlag> LENIENT_FLAGS = EnumSet.of(
+    OutputFlag.ENABLE_DUMMY_TAG,
+    OutputFlag.UNMATCHED_CLOSING_TAGS_ARE_NO_OPS,
+    OutputFlag.ALLOW_MISSING_ATTRIBUTES
+  );
+
+  public final String input;
+  public final @Nullable MarkupNode ast;
+  public final @Nullable List<HierarchicalToken> tokens;
+  public final @Nullable String errorMessage;
+  public final int errorCharIndex;
+
+  private @Nullable TokenSequence tokenSequence;
+
+  private ParseResult(
+    String input,
+    @Nullable MarkupNode ast,
+    @Nullable List<HierarchicalToken> tokens,
+    @Nullable String errorMessage,
+    int errorCharIndex
+  ) {
+    this.input = input;
+    this.ast = ast;
+    this.tokens = tokens;
+    this.errorMessage = errorMessage;
+    this.errorCharIndex = errorCharIndex;
+  }
+
+  /**
+   * Result of a re-tokenization which spliced the tokens of a partial parse into those of a previous one,
+   * which thus carries neither an AST nor a token-tree.
+   */
+  public static ParseResult ofTokenSequence(TokenSequence tokenSequence) {
+    ParseResult result = new ParseResult(tokenSequence.input, null, null, null, -1);
+    result.tokenSequence = tokenSequence;
+    return result;
+  }
+
+  public @Nullable TokenSequence getTokenSequence() {
+    if (tokenSequence == null && tokens != null)
+      tokenSequence = TokenSequence.of(input, tokens);
+
+    return tokenSequence;
+  }
+
+  public JSParseError toJSParseError() {
+    return JSParseErrorFactory.create(errorMessage, errorCharIndex);
+  }
+
+  public static ParseResult parse(String input, boolean lenient, boolean expression) {
+    double start = Stats.begin();
+
+    try {
+      return parseUnmeasured(input, lenient, expression);
+    } finally {
+      Stats.end(Stats.Phase.PARSE, start);
+    }
+  }
+
+  private static ParseResult parseUnmeasured(String input, boolean lenient, boolean expression) {
+    TokenOutput tokenOutput = new TokenOutput(lenient ? LENIENT_FLAGS : NO_FLAGS);
+    InputView inputView = InputView.of(input);
+
+    if (expression) {
+      try {
+        tokenOutput.onInitialization(inputView);
+        ExpressionParser.parse(inputView, tokenOutput);
+        tokenOutput.onInputEnd();
+        return new ParseResult(input, null, tokenOutput.getResult(), null, -1);
+      } catch (ExpressionParseException e) {
+        return new ParseResult(input, null, null, e.getErrorMessage(), e.position);
+      }
+    }
+
+    try {
+      MarkupNode ast = MarkupParser.parse(inputView, BuiltInTagRegistry.INSTANCE, tokenOutput);
+      return new ParseResult(input, ast, tokenOutput.getResult(), null, -1);
+    } catch (MarkupParseException e) {
+      return new ParseResult(input, null, null, e.getErrorMessage(), e.getCharIndex());
+    }
+  }
+}
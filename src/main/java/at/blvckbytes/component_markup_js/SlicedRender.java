@@ -0,0 +1,56 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.dom.html.HTMLElement;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Interpreted lines which are materialized and emitted in slices, each limited by a time-budget, such
+ * that the first slice replaces all previous components and every following slice is appended to them.
+ * Only materialization is sliced, as the interpreter produces all lines within a single, uninterruptible call.
+ */
+public class SlicedRender {
+
+  public final int handle;
+
+  private final List<HTMLNode> lines;
+  private int nextLineIndex;
+
+  public SlicedRender(int handle, List<HTMLNode> lines) {
+    this.handle = handle;
+    this.lines = lines;
+  }
+
+  /**
+   * Emits the next slice of lines, which is at least a single line, even if it exceeds the budget,
+   * so that every call makes progress; returns whether there are still lines left to be emitted.
+   */
+  public boolean proceed(double budgetMillis) {
+    double deadline = Stats.now() + budgetMillis;
+    int fromIndex = nextLineIndex;
+
+    HTMLElement[] buffer = new HTMLElement[lines.size() - fromIndex];
+    int bufferSize = 0;
+
+    while (nextLineIndex < lines.size()) {
+      buffer[bufferSize++] = HTMLComponentConstructor.toElement(lines.get(nextLineIndex++));
+
+      if (Stats.now() >= deadline)
+        break;
+    }
+
+    HTMLElement[] elements = bufferSize == buffer.length ? buffer : Arrays.copyOf(buffer, bufferSize);
+
+    if (fromIndex == 0)
+      JSComponentsEmitter.onEmitComponents(elements);
+    else
+      JSComponentsEmitter.onAppendComponents(elements);
+
+    return isPending();
+  }
+
+  public boolean isPending() {
+    return nextLineIndex < lines.size();
+  }
+}
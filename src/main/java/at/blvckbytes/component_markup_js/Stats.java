@@ -0,0 +1,183 @@
+package at.blvckbytes.component_markup_js;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Performance-counters, which are only collected while enabled; when disabled, every call
+ * boils down to a single check of a static flag, so that they may stay in production-builds.
+ */
+public class Stats {
+
+  public enum Phase {
+    PARSE("parse"),
+    INTERPRET("interpret"),
+    DOM("dom"),
+    EMIT("emit"),
+    ;
+
+    private final String key;
+
+    Phase(String key) {
+      this.key = key;
+    }
+  }
+
+  public enum Counter {
+    TOKENS_EMITTED("tokensEmitted"),
+    COMPONENTS_CREATED("componentsCreated"),
+    DOM_NODES_CREATED("domNodesCreated"),
+    COLOR_RULES_INSERTED("colorRulesInserted"),
+    TRANSLATION_CALLS("translationCalls"),
+    KEYBIND_CALLS("keybindCalls"),
+    REGEX_CALLS("regexCalls"),
+    FORMATTER_CALLS("formatterCalls"),
+    ;
+
+    private final String key;
+
+    Counter(String key) {
+      this.key = key;
+    }
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+  private static final Counter[] COUNTERS = Counter.values();
+
+  private static boolean enabled;
+
+  private static final double[] totalMillis = new double[PHASES.length];
+  private static final double[] lastMillis = new double[PHASES.length];
+
+  // Last values cover whole calls, which may run a phase many times, e.g. per line or per item
+  private static int callIndex;
+  private static final int[] lastCallIndices = new int[PHASES.length];
+  private static final double[] counts = new double[COUNTERS.length];
+
+  // Caches whose hits and misses are reported; only the parse-cache is shared by both bundles, the renderer registers its own
+  private static final List<String> cacheNames = new ArrayList<>();
+  private static final List<LruCache<?, ?>> caches = new ArrayList<>();
+
+  static {
+    registerCache("parse", ParseCache.INSTANCE.getResults());
+  }
+
+  private Stats() {}
+
+  // High-resolution milliseconds, also used to keep sliced renders within their budget
+  @JSBody(script = "return performance.now();")
+  public static native double now();
+
+  @JSBody(
+    params = { "keys", "values" },
+    script = "var result = {}; for (var i = 0; i < keys.length; ++i) result[keys[i]] = values[i]; return result;"
+  )
+  private static native JSObject toObject(String[] keys, double[] values);
+
+  public static void setEnabled(boolean enabled) {
+    Stats.enabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  // Marks the start of an exported call, such that last durations only sum up the phases run within it
+  public static void beginCall() {
+    if (enabled)
+      ++callIndex;
+  }
+
+  // Returns the start-timestamp to be passed to #end, or zero if disabled
+  public static double begin() {
+    return enabled ? now() : 0;
+  }
+
+  public static void end(Phase phase, double start) {
+    if (!enabled)
+      return;
+
+    double duration = now() - start;
+    int ordinal = phase.ordinal();
+
+    totalMillis[ordinal] += duration;
+
+    if (lastCallIndices[ordinal] != callIndex) {
+      lastCallIndices[ordinal] = callIndex;
+      lastMillis[ordinal] = 0;
+    }
+
+    lastMillis[ordinal] += duration;
+  }
+
+  // For work which runs outside any exported call, e.g. on events, and thus only adds to the totals
+  public static void endOutsideCall(Phase phase, double start) {
+    if (enabled)
+      totalMillis[phase.ordinal()] += now() - start;
+  }
+
+  public static void count(Counter counter) {
+    if (enabled)
+      ++counts[counter.ordinal()];
+  }
+
+  public static void count(Counter counter, int amount) {
+    if (enabled)
+      counts[counter.ordinal()] += amount;
+  }
+
+  public static void registerCache(String name, LruCache<?, ?> cache) {
+    if (caches.contains(cache))
+      return;
+
+    cacheNames.add(name);
+    caches.add(cache);
+  }
+
+  public static JSObject toJSObject() {
+    int size = PHASES.length * 2 + COUNTERS.length + caches.size() * 2;
+
+    String[] keys = new String[size];
+    double[] values = new double[size];
+    int index = 0;
+
+    for (Phase phase : PHASES) {
+      keys[index] = phase.key + "TotalMillis";
+      values[index++] = totalMillis[phase.ordinal()];
+
+      keys[index] = phase.key + "LastMillis";
+      values[index++] = lastMillis[phase.ordinal()];
+    }
+
+    for (Counter counter : COUNTERS) {
+      keys[index] = counter.key;
+      values[index++] = counts[counter.ordinal()];
+    }
+
+    for (int cacheIndex = 0; cacheIndex < caches.size(); ++cacheIndex) {
+      keys[index] = cacheNames.get(cacheIndex) + "CacheHits";
+      values[index++] = caches.get(cacheIndex).getHits();
+
+      keys[index] = cacheNames.get(cacheIndex) + "CacheMisses";
+      values[index++] = caches.get(cacheIndex).getMisses();
+    }
+
+    return toObject(keys, values);
+  }
+
+  public static void reset() {
+    for (int index = 0; index < PHASES.length; ++index) {
+      totalMillis[index] = 0;
+      lastMillis[index] = 0;
+    }
+
+    for (int index = 0; index < COUNTERS.length; ++index)
+      counts[index] = 0;
+
+    for (LruCache<?, ?> cache : caches)
+      cache.resetCounters();
+  }
+}
@@ -0,0 +1,216 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.markup.parser.token.TokenType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pairs the opening and closing tags of a tokenized input, such that the counterpart of the tag at an offset can be found
+ * by binary search. Tags are recognized by the types of their tokens, as emitted by the parser: punctuation opening with
+ * {@code <} or {@code </} up to punctuation ending in {@code >}, named by the tag-identifier in between, if any, where
+ * the anonymous {@code </>} closes the innermost open tag; tags within attribute-expressions are only ever paired among themselves.
+ */
+public class TagIndex {
+
+  private static final int NAME_TYPE = TokenType.MARKUP__IDENTIFIER__TAG.ordinal();
+  private static final int PUNCTUATION_TYPE = TokenType.MARKUP__PUNCTUATION__TAG.ordinal();
+
+  // Per tag, ordered by start: its range within the input, spanning from < up to and including >
+  private final int[] starts;
+  private final int[] ends;
+
+  // Per tag, the index of the tag it pairs with, or -1 if it's self-closing or unmatched
+  private final int[] partners;
+
+  // Per tag, the index of the tag within whose attributes it resides, or -1 if there is none
+  private final int[] parents;
+
+  // Per tag, whether it opens a scope of contents, i.e. is neither closing nor self-closing
+  private final boolean[] opening;
+
+  private TagIndex(int[] starts, int[] ends, int[] partners, int[] parents, boolean[] opening) {
+    this.starts = starts;
+    this.ends = ends;
+    this.partners = partners;
+    this.parents = parents;
+    this.opening = opening;
+  }
+
+  public static TagIndex of(TokenSequence tokens) {
+    List<Tag> tags = new ArrayList<>();
+
+    // Tags whose > has not been reached yet; more than one if tags reside within the attributes of another
+    List<Tag> unterminatedTags = new ArrayList<>();
+
+    TokenIndex tokenOrder = tokens.getIndex();
+
+    for (int position = 0; position < tokens.size(); ++position) {
+      int tokenIndex = tokenOrder.getOrdered(position);
+      int type = tokens.getType(tokenIndex);
+
+      Tag current = unterminatedTags.isEmpty() ? null : unterminatedTags.get(unterminatedTags.size() - 1);
+
+      if (type == NAME_TYPE) {
+        // Should the < not have been emitted as tag-punctuation, the tag is assumed to start at its name
+        if (current == null || current.name != null) {
+          current = new Tag(tokens.getStart(tokenIndex));
+          unterminatedTags.add(current);
+        }
+
+        current.name = tokens.getValue(tokenIndex);
+        continue;
+      }
+
+      if (type != PUNCTUATION_TYPE)
+        continue;
+
+      String punctuation = tokens.getValue(tokenIndex);
+
+      // Punctuation may be emitted as one token per character or as one token per run, e.g. </ or />
+      if (punctuation.indexOf('<') >= 0) {
+        current = new Tag(tokens.getStart(tokenIndex));
+        current.closing = punctuation.indexOf('/') > punctuation.indexOf('<');
+        unterminatedTags.add(current);
+        continue;
+      }
+
+      if (current == null)
+        continue;
+
+      if (punctuation.indexOf('/') >= 0) {
+        if (current.name == null)
+          current.closing = true;
+        else if (!current.closing)
+          current.selfClosing = true;
+      }
+
+      if (punctuation.indexOf('>') >= 0) {
+        current.end = tokens.getEnd(tokenIndex);
+        unterminatedTags.remove(unterminatedTags.size() - 1);
+        tags.add(current);
+      }
+    }
+
+    // Tags are completed innermost first, but have to be ordered by their start
+    tags.sort((first, second) -> Integer.compare(first.start, second.start));
+
+    int[] starts = new int[tags.size()];
+    int[] ends = new int[tags.size()];
+    int[] partners = new int[tags.size()];
+    int[] parents = new int[tags.size()];
+    boolean[] opening = new boolean[tags.size()];
+
+    Arrays.fill(partners, -1);
+
+    // Every tag spans a scope of its own, as tags within its attributes never pair with tags outside of them
+    List<int[]> scopeOwnerAndEnd = new ArrayList<>();
+    List<List<Integer>> scopeOpenTags = new ArrayList<>();
+
+    scopeOwnerAndEnd.add(new int[] { -1, Integer.MAX_VALUE });
+    scopeOpenTags.add(new ArrayList<>());
+
+    for (int index = 0; index < tags.size(); ++index) {
+      Tag tag = tags.get(index);
+
+      starts[index] = tag.start;
+      ends[index] = tag.end;
+      opening[index] = !tag.closing && !tag.selfClosing;
+
+      while (scopeOwnerAndEnd.get(scopeOwnerAndEnd.size() - 1)[1] <= tag.start) {
+        scopeOwnerAndEnd.remove(scopeOwnerAndEnd.size() - 1);
+        scopeOpenTags.remove(scopeOpenTags.size() - 1);
+      }
+
+      parents[index] = scopeOwnerAndEnd.get(scopeOwnerAndEnd.size() - 1)[0];
+      List<Integer> openTags = scopeOpenTags.get(scopeOpenTags.size() - 1);
+
+      if (tag.closing) {
+        for (int openIndex = openTags.size() - 1; openIndex >= 0; --openIndex) {
+          int candidate = openTags.get(openIndex);
+
+          if (tag.name != null && !tag.name.equalsIgnoreCase(tags.get(candidate).name))
+            continue;
+
+          partners[index] = candidate;
+          partners[candidate] = index;
+
+          // Tags which have been left open in between are implicitly closed
+          while (openTags.size() > openIndex)
+            openTags.remove(openTags.size() - 1);
+
+          break;
+        }
+      }
+      else if (!tag.selfClosing)
+        openTags.add(index);
+
+      scopeOwnerAndEnd.add(new int[] { index, tag.end });
+      scopeOpenTags.add(new ArrayList<>());
+    }
+
+    return new TagIndex(starts, ends, partners, parents, opening);
+  }
+
+  /**
+   * Index of the innermost tag whose range contains offset, or -1 if there is none.
+   */
+  public int findTag(int offset) {
+    int low = 0;
+    int high = starts.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (starts[middle] > offset)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+
+    int index = low - 1;
+
+    while (index >= 0 && ends[index] <= offset)
+      index = parents[index];
+
+    return index;
+  }
+
+  public int size() {
+    return starts.length;
+  }
+
+  public int getParent(int index) {
+    return parents[index];
+  }
+
+  public boolean isOpening(int index) {
+    return opening[index];
+  }
+
+  public int getPartner(int index) {
+    return partners[index];
+  }
+
+  public int getStart(int index) {
+    return starts[index];
+  }
+
+  public int getEnd(int index) {
+    return ends[index];
+  }
+
+  private static class Tag {
+    final int start;
+    int end;
+    @Nullable String name;
+    boolean closing;
+    boolean selfClosing;
+
+    Tag(int start) {
+      this.start = start;
+    }
+  }
+}
@@ -0,0 +1,560 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.markup.parser.token.HierarchicalToken;
+import org.jetbrains.annotations.Nullable;
+import org.teavm.jso.typedarrays.Int32Array;
+
+/**
+ * Emission of tokens to JS, which is shared by the full renderer and the highlighter-only bundle; must
+ * thus never reference the interpreter, as that would pull it into the highlighter bundle again.
+ */
+public class TokenHighlighter {
+
+  // State of the last tokenization, which queries run on and incremental re-tokenizations are diffed against
+  private static @Nullable TokenSequence lastTokens;
+  private static boolean lastLenient;
+  private static boolean lastExpression;
+
+  // Number of tokens which JS holds from the last emission, all of which a full reset has to remove
+  private static int lastEmittedCount;
+
+  // How the last tokens have been handed to JS, which re-tokenizations patch in the very same way
+  private static final int EMISSION_TOKENS = 0;
+  private static final int EMISSION_PACKED = 1;
+  private static final int EMISSION_RANGE = 2;
+  private static final int EMISSION_STREAMED = 3;
+
+  private static int lastEmission = EMISSION_TOKENS;
+  private static boolean lastIncludeValues;
+  private static int lastRangeStart;
+  private static int lastRangeEnd;
+  private static int lastChunkSize;
+
+  private static @Nullable String[] lastEmittedTypeNames;
+
+  private TokenHighlighter() {}
+
+  // Prelude of every exported tokenization, in either bundle; streamed ones are not cached, as not to retain their whole token-tree
+  public static ParseResult beginTokenization(String input, boolean lenient, boolean expression, boolean cached) {
+    Stats.beginCall();
+
+    if (cached)
+      return ParseCache.INSTANCE.parse(input, lenient, expression);
+
+    return ParseResult.parse(input, lenient, expression);
+  }
+
+  public static void emit(ParseResult parseResult, boolean lenient, boolean expression) {
+    lastTokens = null;
+    lastEmittedCount = 0;
+
+    TokenSequence tokenSequence = parseResult.getTokenSequence();
+
+    lastEmission = EMISSION_TOKENS;
+
+    if (tokenSequence != null) {
+      emitTokens(tokenSequence, 0, tokenSequence.size());
+      rememberTokens(tokenSequence, lenient, expression);
+    }
+  }
+
+  /**
+   * Hands all tokens to JS in a single call of {@link JSTokenEmitter#onEmitTokens}, packed into one
+   * typed array. Values are only built if requested, as they are mere slices of the input.
+   */
+  public static void emitPacked(ParseResult parseResult, boolean lenient, boolean expression, boolean includeValues) {
+    lastTokens = null;
+    lastEmittedCount = 0;
+
+    TokenSequence tokenSequence = parseResult.getTokenSequence();
+
+    lastEmission = EMISSION_PACKED;
+    lastIncludeValues = includeValues;
+
+    if (tokenSequence != null) {
+      emitPackedTokens(tokenSequence, 0, tokenSequence.size(), includeValues);
+      rememberTokens(tokenSequence, lenient, expression);
+    }
+  }
+
+  /**
+   * Only hands the tokens touching [rangeStart, rangeEnd] to JS, via {@link JSTokenEmitter#onEmitTokens}, while all
+   * tokens are kept, such that further ranges can be fetched by {@link #emitRange} without parsing again. As JS then
+   * only holds part of them, the next incremental re-tokenization emits the last range anew.
+   */
+  public static void emitViewport(ParseResult parseResult, boolean lenient, boolean expression, int rangeStart, int rangeEnd, boolean includeValues) {
+    lastTokens = null;
+    lastEmittedCount = 0;
+
+    TokenSequence tokenSequence = parseResult.getTokenSequence();
+
+    if (tokenSequence != null) {
+      rememberTokens(tokenSequence, lenient, expression);
+      emitRange(rangeStart, rangeEnd, includeValues);
+    }
+  }
+
+  /**
+   * Hands the tokens of the last tokenization which touch [rangeStart, rangeEnd] to JS, ordered by their start,
+   * via {@link JSTokenEmitter#onEmitTokens}, replacing those emitted before; returns their number, or -1 if there
+   * is no last tokenization.
+   */
+  public static int emitRange(int rangeStart, int rangeEnd, boolean includeValues) {
+    if (lastTokens == null)
+      return -1;
+
+    double start = Stats.begin();
+
+    int[] indices = lastTokens.getIndex().findOverlapping(rangeStart, rangeEnd);
+    String[] typeNames = TokenSequence.getTypeNames();
+
+    JSTokenEmitter.onEmitTokens(
+      lastTokens.toInt32Array(indices),
+      includeValues ? lastTokens.getValues(indices) : null,
+      typeNames != lastEmittedTypeNames ? typeNames : null
+    );
+
+    lastEmittedTypeNames = typeNames;
+    lastEmittedCount = indices.length;
+    lastEmission = EMISSION_RANGE;
+    lastIncludeValues = includeValues;
+    lastRangeStart = rangeStart;
+    lastRangeEnd = rangeEnd;
+
+    Stats.count(Stats.Counter.TOKENS_EMITTED, indices.length);
+    Stats.end(Stats.Phase.EMIT, start);
+
+    return indices.length;
+  }
+
+  /**
+   * The innermost token of the last tokenization containing offset, packed as a single triple
+   * as laid out by {@link TokenSequence#toInt32Array(int, int)}; null if there is none.
+   */
+  public static @Nullable Int32Array findTokenAt(int offset) {
+    if (lastTokens == null)
+      return null;
+
+    int index = lastTokens.getIndex().findInnermost(offset);
+
+    if (index < 0)
+      return null;
+
+    return lastTokens.toInt32Array(index, index + 1);
+  }
+
+  // All tokens of the last tokenization containing offset, packed as triples, innermost first
+  public static @Nullable Int32Array findEnclosingTokens(int offset) {
+    if (lastTokens == null)
+      return null;
+
+    return lastTokens.toInt32Array(lastTokens.getIndex().findEnclosing(offset));
+  }
+
+  /**
+   * Ranges of the tag at offset and of the tag it pairs with, as (start, end, partnerStart, partnerEnd),
+   * where ends are exclusive; null if offset is not within a tag or if that tag has no counterpart.
+   */
+  public static @Nullable Int32Array findMatchingTag(int offset) {
+    if (lastTokens == null)
+      return null;
+
+    TagIndex tagIndex = lastTokens.getTagIndex();
+    int tag = tagIndex.findTag(offset);
+
+    if (tag < 0)
+      return null;
+
+    int partner = tagIndex.getPartner(tag);
+
+    if (partner < 0)
+      return null;
+
+    return TokenSequence.wrap(new int[] {
+      tagIndex.getStart(tag), tagIndex.getEnd(tag),
+      tagIndex.getStart(partner), tagIndex.getEnd(partner)
+    });
+  }
+
+  /**
+   * Flattens the token-tree and hands it to JS in chunks of at most chunkSize tokens via {@link JSTokenEmitter#onEmitTokenChunk},
+   * reusing a single buffer, such that neither a flattened copy of all tokens nor a typed array holding all of them is ever
+   * built. The parser only hands out its token-tree once the whole input has been parsed, thus chunks merely batch the emission,
+   * bounding the size of every call, but not the time until the first token. As no flattened sequence remains, the next
+   * incremental re-tokenization streams all of its tokens anew.
+   */
+  public static void emitStreamed(ParseResult parseResult, int chunkSize, boolean includeValues) {
+    lastTokens = null;
+    lastEmittedCount = 0;
+    lastEmission = EMISSION_STREAMED;
+    lastIncludeValues = includeValues;
+    lastChunkSize = chunkSize;
+
+    if (parseResult.tokens == null)
+      return;
+
+    TokenSequence chunk = new TokenSequence(parseResult.input);
+    int maxChunkSize = Math.max(1, chunkSize);
+    int[] chunkIndex = { 0 };
+
+    HierarchicalToken.toSequence(parseResult.tokens, (type, value) -> {
+      chunk.add(type, value.startInclusive, value.endExclusive);
+
+      if (chunk.size() < maxChunkSize)
+        return;
+
+      emitChunk(chunk, 0, chunk.size(), chunkIndex[0]++, false, includeValues);
+      lastEmittedCount += chunk.size();
+      chunk.clear();
+    });
+
+    emitChunk(chunk, 0, chunk.size(), chunkIndex[0], true, includeValues);
+    lastEmittedCount += chunk.size();
+  }
+
+  private static void emitChunk(TokenSequence tokens, int fromIndex, int toIndex, int chunkIndex, boolean last, boolean includeValues) {
+    double start = Stats.begin();
+
+    String[] typeNames = TokenSequence.getTypeNames();
+
+    JSTokenEmitter.onEmitTokenChunk(
+      tokens.toInt32Array(fromIndex, toIndex),
+      includeValues ? tokens.getValues(fromIndex, toIndex) : null,
+      typeNames != lastEmittedTypeNames ? typeNames : null,
+      chunkIndex,
+      last
+    );
+
+    lastEmittedTypeNames = typeNames;
+
+    Stats.count(Stats.Counter.TOKENS_EMITTED, toIndex - fromIndex);
+    Stats.end(Stats.Phase.EMIT, start);
+  }
+
+  /**
+   * Re-tokenizes the input after an edit which replaced removedLength characters at editStart of the previously
+   * tokenized input by insertedLength characters. Only the top-level tags and tokens the edit touches are parsed
+   * again, spliced in between the previous tokens before and after them, and only that window is handed to JS, in
+   * the way the last tokens have been emitted: patched via {@link JSTokenEmitter#onPatchTokens} followed by the
+   * window, where JS holds all tokens, while the last range or all chunks are emitted anew otherwise.
+   */
+  public static ParseResult retokenize(String input, boolean lenient, boolean expression, int editStart, int removedLength, int insertedLength) {
+    TokenSequence previousTokens = lastTokens;
+
+    if (previousTokens != null && (lenient != lastLenient || expression != lastExpression))
+      previousTokens = null;
+
+    ParseResult parseResult = null;
+    Patch patch = null;
+
+    if (previousTokens != null) {
+      String previousInput = previousTokens.input;
+
+      // The caller's edit-range is just a hint; if it doesn't add up, compute it from both inputs
+      if (
+        editStart < 0 || removedLength < 0 || insertedLength < 0
+          || editStart + removedLength > previousInput.length()
+          || previousInput.length() - removedLength + insertedLength != input.length()
+      ) {
+        int maxCommonLength = Math.min(previousInput.length(), input.length());
+
+        editStart = 0;
+
+        while (editStart < maxCommonLength && previousInput.charAt(editStart) == input.charAt(editStart))
+          ++editStart;
+
+        int commonSuffixLength = 0;
+
+        while (
+          commonSuffixLength < maxCommonLength - editStart
+            && previousInput.charAt(previousInput.length() - 1 - commonSuffixLength) == input.charAt(input.length() - 1 - commonSuffixLength)
+        )
+          ++commonSuffixLength;
+
+        removedLength = previousInput.length() - commonSuffixLength - editStart;
+        insertedLength = input.length() - commonSuffixLength - editStart;
+      }
+
+      if (!expression)
+        patch = reparseRegion(previousTokens, input, lenient, editStart, editStart + removedLength, insertedLength - removedLength);
+
+      if (patch != null)
+        parseResult = ParseResult.ofTokenSequence(patch.tokens);
+    }
+
+    if (parseResult == null) {
+      parseResult = ParseResult.parse(input, lenient, expression);
+
+      TokenSequence currentTokens = parseResult.getTokenSequence();
+
+      if (currentTokens == null) {
+        clearEmitted();
+        lastTokens = null;
+        return parseResult;
+      }
+
+      // Only the first tokens JS holds are addressed by index, while ranges and chunks are emitted anew anyway
+      if (previousTokens == null)
+        patch = new Patch(currentTokens, 0, lastEmittedCount, currentTokens.size(), 0);
+      else if (lastEmission == EMISSION_TOKENS || lastEmission == EMISSION_PACKED)
+        patch = diff(previousTokens, currentTokens, editStart, editStart + removedLength, insertedLength - removedLength);
+      else
+        patch = new Patch(currentTokens, 0, lastEmittedCount, currentTokens.size(), insertedLength - removedLength);
+    }
+
+    switch (lastEmission) {
+      case EMISSION_RANGE:
+        rememberTokens(patch.tokens, lenient, expression);
+
+        // The range moves along with edits before it and grows or shrinks with edits within it
+        if (editStart + removedLength <= lastRangeStart)
+          lastRangeStart += patch.offsetDelta;
+
+        if (editStart <= lastRangeEnd)
+          lastRangeEnd = Math.max(lastRangeStart, lastRangeEnd + patch.offsetDelta);
+
+        emitRange(lastRangeStart, lastRangeEnd, lastIncludeValues);
+        break;
+
+      case EMISSION_STREAMED:
+        emitChunks(patch.tokens, lastChunkSize, lastIncludeValues);
+        rememberTokens(patch.tokens, lenient, expression);
+        break;
+
+      default:
+        JSTokenEmitter.onPatchTokens(patch.fromIndex, patch.removedCount, patch.offsetDelta);
+
+        if (lastEmission == EMISSION_PACKED)
+          emitPackedTokens(patch.tokens, patch.fromIndex, patch.toIndex, lastIncludeValues);
+        else
+          emitTokens(patch.tokens, patch.fromIndex, patch.toIndex);
+
+        rememberTokens(patch.tokens, lenient, expression);
+    }
+
+    return parseResult;
+  }
+
+  /**
+   * Tokens of a re-tokenization, of which those within [fromIndex, toIndex) replace removedCount tokens
+   * of the previous ones at fromIndex, while all previous tokens after them moved by offsetDelta.
+   */
+  private static class Patch {
+    final TokenSequence tokens;
+    final int fromIndex;
+    final int removedCount;
+    final int toIndex;
+    final int offsetDelta;
+
+    Patch(TokenSequence tokens, int fromIndex, int removedCount, int toIndex, int offsetDelta) {
+      this.tokens = tokens;
+      this.fromIndex = fromIndex;
+      this.removedCount = removedCount;
+      this.toIndex = toIndex;
+      this.offsetDelta = offsetDelta;
+    }
+  }
+
+  /**
+   * Widens the edited range of the previous input to the top-level tag-pairs and tokens it touches, at whose bounds the
+   * input can be parsed on its own, parses only that region of the new input and splices its tokens in between the previous
+   * ones; null if the region failed to parse, which is left to a full parse, as to report the error at its proper index.
+   */
+  private static @Nullable Patch reparseRegion(TokenSequence previousTokens, String input, boolean lenient, int editStart, int editEnd, int offsetDelta) {
+    TokenIndex tokenIndex = previousTokens.getIndex();
+    TagIndex tagIndex = previousTokens.getTagIndex();
+
+    int regionStart = editStart;
+    int regionEnd = editEnd;
+
+    // Tokens merely touching the edit are included, as insertions at their bounds may extend them
+    for (int index : tokenIndex.findOverlapping(editStart, editEnd)) {
+      regionStart = Math.min(regionStart, previousTokens.getStart(index));
+      regionEnd = Math.max(regionEnd, previousTokens.getEnd(index));
+    }
+
+    boolean widened = true;
+
+    while (widened) {
+      widened = false;
+
+      for (int tag = 0; tag < tagIndex.size(); ++tag) {
+        if (tagIndex.getParent(tag) >= 0)
+          continue;
+
+        int partner = tagIndex.getPartner(tag);
+        int unitStart = tagIndex.getStart(tag);
+        int unitEnd;
+
+        // Unclosed tags span all contents up to the end of the input
+        if (partner > tag)
+          unitEnd = tagIndex.getEnd(partner);
+        else if (partner < 0 && tagIndex.isOpening(tag))
+          unitEnd = previousTokens.input.length();
+        else
+          unitEnd = tagIndex.getEnd(tag);
+
+        if (unitStart < regionEnd && unitEnd > regionStart && (unitStart < regionStart || unitEnd > regionEnd)) {
+          regionStart = Math.min(regionStart, unitStart);
+          regionEnd = Math.max(regionEnd, unitEnd);
+          widened = true;
+        }
+
+        if (partner > tag)
+          tag = partner;
+      }
+
+      for (int index : tokenIndex.findOverlapping(regionStart, regionEnd)) {
+        int start = previousTokens.getStart(index);
+        int end = previousTokens.getEnd(index);
+
+        if (start < regionEnd && end > regionStart && (start < regionStart || end > regionEnd)) {
+          regionStart = Math.min(regionStart, start);
+          regionEnd = Math.max(regionEnd, end);
+          widened = true;
+        }
+      }
+    }
+
+    int previousSize = previousTokens.size();
+    int prefixTokens = 0;
+
+    while (prefixTokens < previousSize && previousTokens.getEnd(prefixTokens) <= regionStart)
+      ++prefixTokens;
+
+    int suffixTokens = 0;
+
+    while (suffixTokens < previousSize - prefixTokens && previousTokens.getStart(previousSize - 1 - suffixTokens) >= regionEnd)
+      ++suffixTokens;
+
+    // Tokens are sequenced by their start, such that all tokens in between have to lie within the region
+    for (int index = prefixTokens; index < previousSize - suffixTokens; ++index) {
+      if (previousTokens.getStart(index) < regionStart || previousTokens.getEnd(index) > regionEnd)
+        return null;
+    }
+
+    TokenSequence regionTokens = ParseResult.parse(input.substring(regionStart, regionEnd + offsetDelta), lenient, false).getTokenSequence();
+
+    if (regionTokens == null)
+      return null;
+
+    TokenSequence tokens = new TokenSequence(input);
+
+    tokens.append(previousTokens, 0, prefixTokens, 0);
+    tokens.append(regionTokens, 0, regionTokens.size(), regionStart);
+    tokens.append(previousTokens, previousSize - suffixTokens, previousSize, offsetDelta);
+
+    return new Patch(tokens, prefixTokens, previousSize - prefixTokens - suffixTokens, prefixTokens + regionTokens.size(), offsetDelta);
+  }
+
+  // Trims the tokens both sequences have in common before and after the edit off of the window to be patched
+  private static Patch diff(TokenSequence previousTokens, TokenSequence currentTokens, int editStart, int editEnd, int offsetDelta) {
+    int maxCommonTokens = Math.min(previousTokens.size(), currentTokens.size());
+
+    int commonPrefixTokens = 0;
+
+    while (
+      commonPrefixTokens < maxCommonTokens
+        && previousTokens.getEnd(commonPrefixTokens) <= editStart
+        && previousTokens.matches(commonPrefixTokens, currentTokens, commonPrefixTokens, 0)
+    )
+      ++commonPrefixTokens;
+
+    int commonSuffixTokens = 0;
+
+    while (commonSuffixTokens < maxCommonTokens - commonPrefixTokens) {
+      int previousIndex = previousTokens.size() - 1 - commonSuffixTokens;
+      int currentIndex = currentTokens.size() - 1 - commonSuffixTokens;
+
+      if (previousTokens.getStart(previousIndex) < editEnd)
+        break;
+
+      if (!previousTokens.matches(previousIndex, currentTokens, currentIndex, offsetDelta))
+        break;
+
+      ++commonSuffixTokens;
+    }
+
+    return new Patch(
+      currentTokens,
+      commonPrefixTokens,
+      previousTokens.size() - commonPrefixTokens - commonSuffixTokens,
+      currentTokens.size() - commonSuffixTokens,
+      offsetDelta
+    );
+  }
+
+  // Removes all tokens JS holds, in the way they have been emitted
+  private static void clearEmitted() {
+    TokenSequence empty = new TokenSequence("");
+
+    switch (lastEmission) {
+      case EMISSION_RANGE:
+        emitPackedTokens(empty, 0, 0, lastIncludeValues);
+        break;
+
+      case EMISSION_STREAMED:
+        emitChunk(empty, 0, 0, 0, true, lastIncludeValues);
+        break;
+
+      default:
+        if (lastEmittedCount != 0)
+          JSTokenEmitter.onPatchTokens(0, lastEmittedCount, 0);
+    }
+
+    lastEmittedCount = 0;
+  }
+
+  private static void emitChunks(TokenSequence tokens, int chunkSize, boolean includeValues) {
+    int maxChunkSize = Math.max(1, chunkSize);
+    int chunkIndex = 0;
+
+    for (int fromIndex = 0; ; fromIndex += maxChunkSize) {
+      int toIndex = Math.min(tokens.size(), fromIndex + maxChunkSize);
+      boolean last = toIndex == tokens.size();
+
+      emitChunk(tokens, fromIndex, toIndex, chunkIndex++, last, includeValues);
+
+      if (last)
+        break;
+    }
+  }
+
+  private static void emitPackedTokens(TokenSequence tokens, int fromIndex, int toIndex, boolean includeValues) {
+    double start = Stats.begin();
+
+    String[] typeNames = TokenSequence.getTypeNames();
+
+    JSTokenEmitter.onEmitTokens(
+      tokens.toInt32Array(fromIndex, toIndex),
+      includeValues ? tokens.getValues(fromIndex, toIndex) : null,
+      typeNames != lastEmittedTypeNames ? typeNames : null
+    );
+
+    lastEmittedTypeNames = typeNames;
+
+    Stats.count(Stats.Counter.TOKENS_EMITTED, toIndex - fromIndex);
+    Stats.end(Stats.Phase.EMIT, start);
+  }
+
+  /**
+   * Emits the tokens within [fromIndex, toIndex) via {@link JSTokenEmitter#onEmitToken}, with values built
+   * by {@link TokenSequence#buildValue}, as this callback has always received them, and not sliced.
+   */
+  private static void emitTokens(TokenSequence tokens, int fromIndex, int toIndex) {
+    double start = Stats.begin();
+
+    for (int index = fromIndex; index < toIndex; ++index)
+      JSTokenEmitter.onEmitToken(tokens.getTypeName(index), tokens.getStart(index), tokens.getEnd(index), tokens.buildValue(index));
+
+    Stats.count(Stats.Counter.TOKENS_EMITTED, toIndex - fromIndex);
+    Stats.end(Stats.Phase.EMIT, start);
+  }
+
+  private static void rememberTokens(TokenSequence tokens, boolean lenient, boolean expression) {
+    lastTokens = tokens;
+    lastEmittedCount = tokens.size();
+    lastLenient = lenient;
+    lastExpression = expression;
+  }
+}
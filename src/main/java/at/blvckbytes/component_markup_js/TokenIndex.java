@@ -0,0 +1,190 @@
+package at.blvckbytes.component_markup_js;
+
+import java.util.Arrays;
+
+/**
+ * Orders the tokens of a sequence by their start, such that all tokens overlapping a range can be found by
+ * binary search. As tokens may nest, their ends aren't ordered; the running maximum of all ends up to each
+ * position is, which allows to skip every token ending before the range without inspecting it. Nesting is
+ * recovered from the spans alone, by linking every token to the innermost token which encloses it.
+ */
+public class TokenIndex {
+
+  private final TokenSequence tokens;
+
+  // Token-indices, ordered by start ascending, then by end descending, such that enclosing tokens come first
+  private final int[] order;
+
+  // maxEnds[position] is the highest end of all tokens at order[0..position]
+  private final int[] maxEnds;
+
+  // Per token-index, the index of the innermost token enclosing it, or -1 if there is none
+  private final int[] parents;
+
+  private TokenIndex(TokenSequence tokens, int[] order) {
+    this.tokens = tokens;
+    this.order = order;
+    this.maxEnds = new int[order.length];
+
+    this.parents = new int[order.length];
+
+    int maxEnd = Integer.MIN_VALUE;
+
+    // Tokens still open at the current position, the innermost one on top
+    int[] stack = new int[order.length];
+    int stackSize = 0;
+
+    for (int position = 0; position < order.length; ++position) {
+      int index = order[position];
+      int end = tokens.getEnd(index);
+
+      maxEnd = Math.max(maxEnd, end);
+      maxEnds[position] = maxEnd;
+
+      // As starts are ascending, a token encloses the current one if it doesn't end before it
+      while (stackSize > 0 && tokens.getEnd(stack[stackSize - 1]) < end)
+        --stackSize;
+
+      parents[index] = stackSize == 0 ? -1 : stack[stackSize - 1];
+      stack[stackSize++] = index;
+    }
+  }
+
+  public static TokenIndex of(TokenSequence tokens) {
+    int[] order = new int[tokens.size()];
+
+    for (int index = 0; index < order.length; ++index)
+      order[index] = index;
+
+    // Sequences are mostly in order already, in which case sorting is skipped entirely
+    if (!isOrdered(tokens, order)) {
+      Integer[] boxedOrder = new Integer[order.length];
+
+      for (int index = 0; index < order.length; ++index)
+        boxedOrder[index] = index;
+
+      Arrays.sort(boxedOrder, (a, b) -> compare(tokens, a, b));
+
+      for (int index = 0; index < order.length; ++index)
+        order[index] = boxedOrder[index];
+    }
+
+    return new TokenIndex(tokens, order);
+  }
+
+  // Index of the token at the given position when ordered by start, as enclosing tokens are ordered by #findEnclosing
+  public int getOrdered(int position) {
+    return order[position];
+  }
+
+  public TokenSequence getTokens() {
+    return tokens;
+  }
+
+  /**
+   * Indices of all tokens touching [rangeStart, rangeEnd], ordered by their start; empty tokens
+   * and tokens merely bordering the range are included, as highlighting them costs next to nothing.
+   */
+  public int[] findOverlapping(int rangeStart, int rangeEnd) {
+    int fromPosition = firstPositionWithMaxEndAtLeast(rangeStart);
+    int toPosition = firstPositionWithStartAfter(rangeEnd);
+
+    int[] result = new int[Math.max(0, toPosition - fromPosition)];
+    int resultSize = 0;
+
+    for (int position = fromPosition; position < toPosition; ++position) {
+      int index = order[position];
+
+      if (tokens.getEnd(index) >= rangeStart)
+        result[resultSize++] = index;
+    }
+
+    return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+  }
+
+  /**
+   * Index of the innermost token which contains offset, where a token [start, end) contains all offsets
+   * from its start up to, but excluding, its end; -1 if there is none.
+   */
+  public int findInnermost(int offset) {
+    int position = firstPositionWithStartAfter(offset) - 1;
+
+    if (position < 0)
+      return -1;
+
+    int index = order[position];
+
+    // The token starting last before offset either contains it, or one of the tokens enclosing it does
+    while (index >= 0 && tokens.getEnd(index) <= offset)
+      index = parents[index];
+
+    return index;
+  }
+
+  // Indices of all tokens containing offset, innermost first
+  public int[] findEnclosing(int offset) {
+    int innermost = findInnermost(offset);
+    int length = 0;
+
+    for (int index = innermost; index >= 0; index = parents[index])
+      ++length;
+
+    int[] result = new int[length];
+    int position = 0;
+
+    for (int index = innermost; index >= 0; index = parents[index])
+      result[position++] = index;
+
+    return result;
+  }
+
+  private int firstPositionWithMaxEndAtLeast(int offset) {
+    int low = 0;
+    int high = order.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (maxEnds[middle] >= offset)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+
+    return low;
+  }
+
+  private int firstPositionWithStartAfter(int offset) {
+    int low = 0;
+    int high = order.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (tokens.getStart(order[middle]) > offset)
+        high = middle;
+      else
+        low = middle + 1;
+    }
+
+    return low;
+  }
+
+  private static boolean isOrdered(TokenSequence tokens, int[] order) {
+    for (int position = 1; position < order.length; ++position) {
+      if (compare(tokens, order[position - 1], order[position]) > 0)
+        return false;
+    }
+
+    return true;
+  }
+
+  private static int compare(TokenSequence tokens, int a, int b) {
+    int result = Integer.compare(tokens.getStart(a), tokens.getStart(b));
+
+    if (result != 0)
+      return result;
+
+    return Integer.compare(tokens.getEnd(b), tokens.getEnd(a));
+  }
+}
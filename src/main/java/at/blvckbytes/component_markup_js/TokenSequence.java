@@ -0,0 +1,281 @@
+package at.blvckbytes.component_markup_js;
+
+import at.blvckbytes.component_markup.markup.parser.token.HierarchicalToken;
+import at.blvckbytes.component_markup.util.InputView;
+import org.jetbrains.annotations.Nullable;
+import org.teavm.interop.PlatformMarker;
+import org.teavm.interop.Platforms;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.typedarrays.Int32Array;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TokenSequence {
+
+  private static final int ENTRY_SIZE = 3;
+
+  private static String[] typeNames = new String[0];
+
+  public final String input;
+
+  // Packed triples of (type-ordinal, startInclusive, endExclusive)
+  private int[] entries;
+  private int size;
+
+  // Per entry, the parser's view of its value, if it has been kept
+  private @Nullable InputView[] views;
+
+  private @Nullable TokenIndex index;
+  private @Nullable TagIndex tagIndex;
+
+  public TokenSequence(String input) {
+    this.input = input;
+    this.entries = new int[64 * ENTRY_SIZE];
+  }
+
+  // Replaced by true when compiling for the JS-backend
+  @PlatformMarker(Platforms.JAVASCRIPT)
+  private static boolean isJavaScript() {
+    return false;
+  }
+
+  @JSBody(
+    params = { "array", "from", "to" },
+    script = "return array.slice(from, to);"
+  )
+  private static native Int32Array slice(Int32Array array, int from, int to);
+
+  /**
+   * Hands an array which is not modified afterwards to JS; on the JS-backend, it's wrapped without a copy,
+   * which is not possible on Wasm GC, where arrays live in the module's own heap.
+   */
+  public static Int32Array wrap(int[] values) {
+    if (isJavaScript())
+      return Int32Array.fromJavaArray(values);
+
+    return Int32Array.copyFromJavaArray(values);
+  }
+
+  public static TokenSequence of(String input, List<HierarchicalToken> tokens) {
+    TokenSequence result = new TokenSequence(input);
+    HierarchicalToken.toSequence(tokens, result::add);
+    return result;
+  }
+
+  public static String[] getTypeNames() {
+    return typeNames;
+  }
+
+  public void add(Enum<?> type, int startInclusive, int endExclusive) {
+    int ordinal = type.ordinal();
+
+    if (ordinal >= typeNames.length)
+      registerTypeNames(type);
+
+    ensureCapacity(size + 1);
+
+    index = null;
+    tagIndex = null;
+
+    int offset = size * ENTRY_SIZE;
+
+    entries[offset] = ordinal;
+    entries[offset + 1] = startInclusive;
+    entries[offset + 2] = endExclusive;
+
+    if (views != null)
+      views[size] = null;
+
+    ++size;
+  }
+
+  public void add(Enum<?> type, InputView value) {
+    add(type, value.startInclusive, value.endExclusive);
+
+    if (views == null)
+      views = new InputView[entries.length / ENTRY_SIZE];
+
+    views[size - 1] = value;
+  }
+
+  /**
+   * Appends the entries within [fromIndex, toIndex) of source, moving their offsets by offsetDelta.
+   */
+  public void append(TokenSequence source, int fromIndex, int toIndex, int offsetDelta) {
+    int count = toIndex - fromIndex;
+
+    ensureCapacity(size + count);
+
+    index = null;
+    tagIndex = null;
+
+    int offset = size * ENTRY_SIZE;
+    int endOffset = offset + count * ENTRY_SIZE;
+
+    System.arraycopy(source.entries, fromIndex * ENTRY_SIZE, entries, offset, count * ENTRY_SIZE);
+
+    if (offsetDelta != 0) {
+      for (int entryOffset = offset; entryOffset < endOffset; entryOffset += ENTRY_SIZE) {
+        entries[entryOffset + 1] += offsetDelta;
+        entries[entryOffset + 2] += offsetDelta;
+      }
+    }
+
+    if (source.views != null) {
+      if (views == null)
+        views = new InputView[entries.length / ENTRY_SIZE];
+
+      System.arraycopy(source.views, fromIndex, views, size, count);
+    }
+    else if (views != null)
+      Arrays.fill(views, size, size + count, null);
+
+    size += count;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // Keeps the allocated capacity, such that the sequence can be reused as a buffer
+  public void clear() {
+    size = 0;
+    index = null;
+    tagIndex = null;
+  }
+
+  // Built on first use and kept until the sequence changes
+  public TokenIndex getIndex() {
+    if (index == null)
+      index = TokenIndex.of(this);
+
+    return index;
+  }
+
+  public TagIndex getTagIndex() {
+    if (tagIndex == null)
+      tagIndex = TagIndex.of(this);
+
+    return tagIndex;
+  }
+
+  public int getType(int index) {
+    return entries[index * ENTRY_SIZE];
+  }
+
+  public String getTypeName(int index) {
+    return typeNames[getType(index)];
+  }
+
+  public int getStart(int index) {
+    return entries[index * ENTRY_SIZE + 1];
+  }
+
+  public int getEnd(int index) {
+    return entries[index * ENTRY_SIZE + 2];
+  }
+
+  public String getValue(int index) {
+    return input.substring(getStart(index), getEnd(index));
+  }
+
+  /**
+   * Value as built by the parser's {@link InputView}, which {@link JSTokenEmitter#onEmitToken} has always
+   * received; falls back to {@link #getValue} for entries whose view has not been kept.
+   */
+  public String buildValue(int index) {
+    InputView view = views == null ? null : views[index];
+    return view == null ? getValue(index) : view.buildString();
+  }
+
+  public String[] getValues(int fromIndex, int toIndex) {
+    String[] result = new String[toIndex - fromIndex];
+
+    for (int index = fromIndex; index < toIndex; ++index)
+      result[index - fromIndex] = getValue(index);
+
+    return result;
+  }
+
+  /**
+   * Packs the entries within [fromIndex, toIndex) as consecutive triples of
+   * (type-ordinal, startInclusive, endExclusive); ordinals index into {@link #getTypeNames()}.
+   */
+  public Int32Array toInt32Array(int fromIndex, int toIndex) {
+    int from = fromIndex * ENTRY_SIZE;
+    int to = toIndex * ENTRY_SIZE;
+
+    // Entries are reused as a buffer, thus a view on them has to be copied, which slice does in a single pass
+    if (isJavaScript())
+      return slice(Int32Array.fromJavaArray(entries), from, to);
+
+    return Int32Array.copyFromJavaArray(Arrays.copyOfRange(entries, from, to));
+  }
+
+  /**
+   * Packs the entries at the given indices, in their order, as laid out by {@link #toInt32Array(int, int)}.
+   */
+  public Int32Array toInt32Array(int[] indices) {
+    int[] result = new int[indices.length * ENTRY_SIZE];
+
+    for (int position = 0; position < indices.length; ++position)
+      System.arraycopy(entries, indices[position] * ENTRY_SIZE, result, position * ENTRY_SIZE, ENTRY_SIZE);
+
+    return wrap(result);
+  }
+
+  public String[] getValues(int[] indices) {
+    String[] result = new String[indices.length];
+
+    for (int position = 0; position < indices.length; ++position)
+      result[position] = getValue(indices[position]);
+
+    return result;
+  }
+
+  /**
+   * Writes the packed entries within [fromIndex, toIndex) into target, as laid out by {@link #toInt32Array};
+   * returns the index within target which follows the last value written.
+   */
+  public int writeEntries(int fromIndex, int toIndex, int[] target, int targetOffset) {
+    int length = (toIndex - fromIndex) * ENTRY_SIZE;
+    System.arraycopy(entries, fromIndex * ENTRY_SIZE, target, targetOffset, length);
+    return targetOffset + length;
+  }
+
+  public static int getEntrySize() {
+    return ENTRY_SIZE;
+  }
+
+  /**
+   * Whether the token at {@code index} equals the token at {@code otherIndex} of {@code other}
+   * once the latter's offsets have been moved back by {@code otherOffsetDelta}.
+   */
+  public boolean matches(int index, TokenSequence other, int otherIndex, int otherOffsetDelta) {
+    return getType(index) == other.getType(otherIndex)
+      && getStart(index) + otherOffsetDelta == other.getStart(otherIndex)
+      && getEnd(index) + otherOffsetDelta == other.getEnd(otherIndex);
+  }
+
+  private void ensureCapacity(int entryCount) {
+    if (entryCount * ENTRY_SIZE <= entries.length)
+      return;
+
+    entries = Arrays.copyOf(entries, Math.max(entries.length * 2, entryCount * ENTRY_SIZE));
+
+    if (views != null)
+      views = Arrays.copyOf(views, entries.length / ENTRY_SIZE);
+  }
+
+  private static void registerTypeNames(Enum<?> type) {
+    Enum<?>[] constants = type.getDeclaringClass().getEnumConstants();
+
+    String[] names = new String[constants.length];
+
+    for (int index = 0; index < constants.length; ++index)
+      names[index] = constants[index].name();
+
+    typeNames = names;
+  }
+}
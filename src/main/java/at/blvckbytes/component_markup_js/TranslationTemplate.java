@@ -0,0 +1,114 @@
+package at.blvckbytes.component_markup_js;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A translation, pre-split into its literal segments and its %s, %N and %N$s placeholders,
+ * such that rendering it only has to interleave the cached literals with the with-components.
+ */
+public class TranslationTemplate {
+
+  // Keyed by the translation itself, not its key, so that swapped language-tables stay correct
+  private static final LruCache<String, TranslationTemplate> CACHE = new LruCache<>(256);
+
+  // Non-negative parts are placeholder-indices, negative parts p refer to literals[-(p + 1)]
+  private final int[] parts;
+  private final String[] literals;
+
+  // Highest placeholder-index; Integer.MAX_VALUE if there's an index which can never be satisfied
+  private final int maxIndex;
+
+  private TranslationTemplate(int[] parts, String[] literals, int maxIndex) {
+    this.parts = parts;
+    this.literals = literals;
+    this.maxIndex = maxIndex;
+  }
+
+  public static TranslationTemplate of(String translation) {
+    return CACHE.computeIfAbsent(translation, TranslationTemplate::compile);
+  }
+
+  public static LruCache<String, TranslationTemplate> getCache() {
+    return CACHE;
+  }
+
+  public boolean canApply(int withCount) {
+    return maxIndex < withCount;
+  }
+
+  /**
+   * Requires {@link #canApply} to hold for the number of with-components passed.
+   */
+  public <C> List<C> apply(List<C> with, Function<String, C> textFactory) {
+    List<C> result = new ArrayList<>(parts.length);
+
+    for (int part : parts) {
+      if (part >= 0)
+        result.add(with.get(part));
+      else
+        result.add(textFactory.apply(literals[-(part + 1)]));
+    }
+
+    return result;
+  }
+
+  private static TranslationTemplate compile(String translation) {
+    int[] parts = new int[8];
+    int partCount = 0;
+
+    List<String> literals = new ArrayList<>();
+
+    int nextAppendIndex = 0;
+    int withIndex = 0;
+    int maxIndex = -1;
+
+    for (int charIndex = 0; charIndex < translation.length(); ++charIndex) {
+      int remainingChars = translation.length() - 1 - charIndex;
+
+      if (translation.charAt(charIndex) == '%' && remainingChars > 0) {
+        char nextChar = translation.charAt(charIndex + 1);
+
+        int index;
+
+        if (nextChar >= '0' && nextChar <= '9')
+          index = (nextChar - '0') - 1;
+        else
+          index = withIndex++;
+
+        if (index < 0)
+          return new TranslationTemplate(new int[0], new String[0], Integer.MAX_VALUE);
+
+        maxIndex = Math.max(maxIndex, index);
+
+        if (partCount + 2 > parts.length)
+          parts = Arrays.copyOf(parts, parts.length * 2);
+
+        if (charIndex != 0) {
+          literals.add(translation.substring(nextAppendIndex, charIndex));
+          parts[partCount++] = -literals.size();
+        }
+
+        if (remainingChars > 1 && translation.charAt(charIndex + 2) == '$')
+          charIndex += 2;
+
+        nextAppendIndex = charIndex + 2;
+
+        parts[partCount++] = index;
+        ++charIndex;
+      }
+    }
+
+    if (nextAppendIndex <= translation.length() - 1) {
+      if (partCount + 1 > parts.length)
+        parts = Arrays.copyOf(parts, parts.length + 1);
+
+      literals.add(translation.substring(nextAppendIndex));
+      parts[partCount++] = -literals.size();
+    }
+
+    return new TranslationTemplate(Arrays.copyOf(parts, partCount), literals.toArray(new String[0]), maxIndex);
+  }
+}